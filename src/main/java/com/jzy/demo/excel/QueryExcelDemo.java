@@ -0,0 +1,40 @@
+package com.jzy.demo.excel;
+
+import com.jzy.office.excel.DefaultExcel;
+import com.jzy.office.excel.ExcelQuery;
+import com.jzy.office.exception.InvalidFileTypeException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @ClassName QueryExcelDemo
+ * @Author JinZhiyun
+ * @Description 查询excel的示例：筛选、选取列、分组聚合，不需要手写遍历行列的循环。
+ * 处理的示例表格为项目example目录下的test1.xlsx
+ * @Date 2021/3/1 11:20
+ * @Version 1.0
+ **/
+public class QueryExcelDemo {
+    public static void main(String[] args) throws IOException, InvalidFileTypeException {
+        //改成你实际的文件路径
+        String filePath = "E:\\Engineering\\java\\idea\\easy-office-process\\example\\test1.xlsx";
+        DefaultExcel excel = new DefaultExcel(filePath);
+
+        //所有男生的学号和年龄
+        List<List<String>> boys = excel.query(0).where("性别", "男"::equals).select("学号", "年龄").list();
+        System.out.println("男生：" + boys);
+
+        //年龄大于22岁的人数
+        long count = excel.query(0).where("年龄", age -> Integer.parseInt(age) > 22).count();
+        System.out.println("年龄大于22岁的人数：" + count);
+
+        //各性别的人数、最小年龄、最大年龄
+        List<ExcelQuery.AggregateRow> rows = excel.query(0).groupBy("性别").aggregate(ExcelQuery.Aggregation.count(),
+                ExcelQuery.Aggregation.min("年龄"), ExcelQuery.Aggregation.max("年龄"));
+        for (ExcelQuery.AggregateRow row : rows) {
+            System.out.println(row.getGroup().get(0) + "：" + (long) row.getValue(0) + "人，年龄"
+                    + (long) row.getValue(1) + "~" + (long) row.getValue(2));
+        }
+    }
+}
@@ -130,13 +130,11 @@ public class ReadableAndWriteableTest1Excel extends AbstractInputExcel implement
     @Override
     public boolean writeData() {
         int sheetIndex = 0;
-        int rowCount = getRowCount(sheetIndex); // 表的总行数
-        for (int i = DEFAULT_START_ROW + 1; i < rowCount; i++) {
-            String id = read(sheetIndex, i, columnIndexOfId);
-            String registrationStatus = studentRegistrationStatus.get(id);
-            //写入注册状态
-            write(sheetIndex, i, columnIndexOfRegistrationStatus, registrationStatus);
-        }
+        //按学号写入注册状态，逐行只遍历一次。没有注册情况的学号写入null，清空原来的值
+        forEachRow(sheetIndex, DEFAULT_START_ROW + 1, row -> {
+            String id = row.read(columnIndexOfId);
+            row.write(columnIndexOfRegistrationStatus, studentRegistrationStatus.get(id));
+        });
         return true;
     }
 
@@ -0,0 +1,44 @@
+package com.jzy.demo.excel;
+
+import com.jzy.office.excel.Excel2007StreamingPatcher;
+import com.jzy.office.exception.InvalidFileTypeException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ClassName StreamingPatchExcelDemo
+ * @Author JinZhiyun
+ * @Description 一个流式修改excel 2007的示例：按学号写回注册情况，不构造工作簿对象，适用于很大的表格。
+ * 处理的示例表格为项目example目录下的test1.xlsx，效果同{@link ReadableAndWriteableTest1Excel}
+ * @Date 2021/2/26 17:20
+ * @Version 1.0
+ **/
+public class StreamingPatchExcelDemo {
+    public static void main(String[] args) throws IOException, InvalidFileTypeException {
+        //改成你实际的文件路径
+        String filePath = "E:\\Engineering\\java\\idea\\easy-office-process\\example\\test1.xlsx";
+        String savePath = "C:\\Users\\92970\\Desktop\\1.xlsx";
+
+        //学生注册情况，键=学号，值=注册情况
+        Map<String, String> studentRegistrationStatus = new HashMap<>();
+        studentRegistrationStatus.put("1", "是");
+        studentRegistrationStatus.put("2", "否");
+        studentRegistrationStatus.put("3", "是");
+
+        int sheetIndex = 0;
+        //学号在第1列，是否已注册在第4列，第1行为表头
+        int idColumn = 0;
+        int registrationColumn = 3;
+        int startRow = 1;
+        Excel2007StreamingPatcher patcher = new Excel2007StreamingPatcher();
+        Excel2007StreamingPatcher.PatchResult result = patcher.patch(filePath, savePath, sheetIndex, idColumn, startRow, id -> {
+            String status = studentRegistrationStatus.get(id);
+            //没有注册情况的学生不修改
+            return status == null ? null : Collections.singletonMap(registrationColumn, status);
+        });
+        System.out.println(result);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jzy.demo.util;
+
+import com.jzy.util.MyStringUtils;
+import com.jzy.util.MyValidateUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * @ClassName ValidateBenchmarkDemo
+ * @Author JinZhiyun
+ * @Description 对比{@link MyStringUtils}与{@link MyValidateUtils}批量校验整列值的耗时。
+ * 每种校验先预热几轮让JIT编译完成，再取多轮的平均每个值的耗时；数据随机生成，大部分合法
+ * @Date 2021/3/2 15:20
+ * @Version 1.0
+ **/
+public class ValidateBenchmarkDemo {
+    private static final int VALUE_COUNT = 200000;
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        List<String> idCards = new ArrayList<>(VALUE_COUNT);
+        List<String> phones = new ArrayList<>(VALUE_COUNT);
+        List<String> emails = new ArrayList<>(VALUE_COUNT);
+        List<String> ips = new ArrayList<>(VALUE_COUNT);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            String idCard15 = String.format("3101%02d%02d%02d%02d%03d", random.nextInt(20), 50 + random.nextInt(50),
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(1000));
+            String idCard = MyStringUtils.IdCardUtil.convertIdCardBy15bit(idCard15);
+            idCards.add(random.nextInt(10) == 0 ? idCard.substring(0, 17) + "0" : idCard);
+            phones.add(String.format("1%d%d%08d", 3 + random.nextInt(7), random.nextInt(10), random.nextInt(100000000)));
+            emails.add("user" + i + (random.nextBoolean() ? "@example.com" : "@mail.example.com.cn"));
+            ips.add(random.nextBoolean() ? random.nextInt(256) + "." + random.nextInt(256) + ".1." + random.nextInt(256)
+                    : String.format("fe80::%x:%x:%x", random.nextInt(65536), random.nextInt(65536), random.nextInt(65536)));
+        }
+
+        compare("身份证号", idCards, MyStringUtils.IdCardUtil::isValidatedAllIdCard, MyValidateUtils::isIdCard);
+        compare("手机号", phones, MyStringUtils::isPhone, MyValidateUtils::isPhone);
+        compare("邮箱", emails, MyStringUtils::isEmail, MyValidateUtils::isEmail);
+        compare("ip地址", ips, MyStringUtils::isIpAddress, MyValidateUtils::isIpAddress);
+    }
+
+    private static void compare(String name, List<String> values, Predicate<String> old, Predicate<CharSequence> current) {
+        double oldNanos = nanosPerValue(values, old);
+        double currentNanos = nanosPerValue(values, current::test);
+        System.out.printf("%s：MyStringUtils %.1f ns/个，MyValidateUtils %.1f ns/个，快%.1f倍，不合法%d个%n", name, oldNanos,
+                currentNanos, oldNanos / currentNanos, MyValidateUtils.findInvalid(values, current).cardinality());
+    }
+
+    private static double nanosPerValue(List<String> values, Predicate<String> validator) {
+        long validCount = 0;
+        long nanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String value : values) {
+                if (validator.test(value)) {
+                    validCount++;
+                }
+            }
+            if (round >= WARMUP_ROUNDS) {
+                nanos += System.nanoTime() - start;
+            }
+        }
+        //使用校验结果，避免循环被JIT优化掉
+        if (validCount < 0) {
+            System.out.println(validCount);
+        }
+        return (double) nanos / ROUNDS / values.size();
+    }
+}
@@ -0,0 +1,51 @@
+package com.jzy.demo.word;
+
+import com.jzy.office.matcher.LabelMatcher;
+import com.jzy.office.matcher.LabelMatchers;
+
+import java.util.HashMap;
+
+/**
+ * @ClassName ReplaceAllLabelsScalingDemo
+ * @Author JinZhiyun
+ * @Description 演示标签替换的耗时随段落中标签数量线性增长。依次构造含100~3200个${}标签的段落，
+ * 统计{@link LabelMatcher#replaceAllLabels(String, HashMap)}平均每次的耗时以及平均每个标签的耗时
+ * @Date 2021/2/20 15:12
+ * @Version 1.0
+ **/
+public class ReplaceAllLabelsScalingDemo {
+    /**
+     * 正式计时前的预热次数
+     */
+    private static final int WARM_UP_ROUNDS = 2000;
+
+    /**
+     * 正式计时的次数
+     */
+    private static final int MEASURE_ROUNDS = 2000;
+
+    public static void main(String[] args) {
+        LabelMatcher matcher = LabelMatchers.DEFAULT_LABEL_MATCHER;
+        for (int labelCount = 100; labelCount <= 3200; labelCount *= 2) {
+            //构造含labelCount个标签的段落，以及对应的书签集，替换值中故意带有$
+            StringBuilder para = new StringBuilder();
+            HashMap<String, String> bookmark = new HashMap<>();
+            for (int i = 0; i < labelCount; i++) {
+                para.append("第").append(i).append("项：${label").append(i).append("}；");
+                bookmark.put("label" + i, "$" + i);
+            }
+            String target = para.toString();
+
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                matcher.replaceAllLabels(target, bookmark);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                matcher.replaceAllLabels(target, bookmark);
+            }
+            long avg = (System.nanoTime() - start) / MEASURE_ROUNDS;
+            System.out.println("标签数：" + labelCount + "，平均每次替换耗时：" + avg / 1000 + "μs，平均每个标签耗时："
+                    + avg / labelCount + "ns");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.jzy.demo.word;
+
+import com.jzy.office.exception.InvalidFileTypeException;
+import com.jzy.office.word.Word2007TextExtractor;
+import com.jzy.office.word.Word2007TextHandler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @ClassName StreamingReadWord2007Demo
+ * @Author JinZhiyun
+ * @Description 一个流式读word 2007文本的示例，不构造XWPFDocument，适用于大批量文档建立索引
+ * @Date 2021/2/24 11:02
+ * @Version 1.0
+ **/
+public class StreamingReadWord2007Demo {
+    public static void main(String[] args) throws IOException, InvalidFileTypeException {
+        //改成你实际的文件路径
+        String filePath = "D:\\CDesktop\\Engineering\\java\\idea\\easy-office-process\\example\\1.docx";
+
+        //同时读取页眉、页脚
+        Word2007TextExtractor extractor = new Word2007TextExtractor(true);
+        extractor.extract(filePath, new Word2007TextHandler() {
+            @Override
+            public void startPart(String partName) {
+                System.out.println("开始读取：" + partName);
+            }
+
+            @Override
+            public void paragraph(int pos, String text) {
+                System.out.println("第" + (pos + 1) + "段文本为：" + text);
+            }
+
+            @Override
+            public void tableCell(int tablePos, int rowPos, int columnPos, List<String> paragraphs) {
+                System.out.println("第" + (tablePos + 1) + "个表格第" + (rowPos + 1) + "行第" + (columnPos + 1) + "列的单元格内容为：" + paragraphs);
+            }
+        });
+    }
+}
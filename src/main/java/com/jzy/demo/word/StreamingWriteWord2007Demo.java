@@ -0,0 +1,32 @@
+package com.jzy.demo.word;
+
+import com.jzy.office.exception.InvalidFileTypeException;
+import com.jzy.office.word.Word2007StreamingReplacer;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * @ClassName StreamingWriteWord2007Demo
+ * @Author JinZhiyun
+ * @Description 一个流式替换word 2007模板标签的示例，不构造XWPFDocument，适用于很大的模板
+ * @Date 2021/2/25 14:20
+ * @Version 1.0
+ **/
+public class StreamingWriteWord2007Demo {
+    public static void main(String[] args) throws IOException, InvalidFileTypeException {
+        //改成你实际的文件路径
+        String filePath = "D:\\CDesktop\\Engineering\\java\\idea\\easy-office-process\\example\\1.docx";
+        String savePath = "C:\\Users\\92970\\Desktop\\1.docx";
+
+        //创建准备替换的书签集
+        HashMap<String, String> bookmark = new HashMap<>();
+        bookmark.put("table", "0000");
+        bookmark.put("lab", "1111");
+
+        //使用默认标签匹配器替换正文、页眉、页脚中的所有标签，结果直接写到savePath
+        Word2007StreamingReplacer replacer = new Word2007StreamingReplacer();
+        HashMap<String, String> replacedBookmark = replacer.replace(filePath, savePath, bookmark);
+        System.out.println("所有被成功替换的书签为：" + replacedBookmark);
+    }
+}
@@ -1,12 +1,14 @@
 package com.jzy.office;
 
 import lombok.Getter;
+import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 
 /**
  * @ClassName AbstractOffice
@@ -27,6 +29,14 @@ public abstract class AbstractOffice {
      */
     protected OutputStream os;
 
+    /**
+     * 是否增量保存：只重新序列化通过本类方法修改过的部件，其他部件从源文件原样复制，默认关闭。
+     * 直接操作工作簿、文档对象（包括子类中的字段）所做的修改无法跟踪，开启后这些修改可能不会被保存
+     */
+    @Getter
+    @Setter
+    protected boolean incrementalSave;
+
 
     /**
      * 将当前修改保存覆盖至输入文件inputFilePath中，并关闭所有流
@@ -69,13 +79,38 @@ public abstract class AbstractOffice {
      */
     public void save() throws IOException {
         if (StringUtils.isNotEmpty(inputFilePath)) {
-            os = new FileOutputStream(new File(inputFilePath));
-            save(os);
+            File inputFile = new File(inputFilePath);
+            if (!isInputFileReadOnSave()) {
+                os = new FileOutputStream(inputFile);
+                save(os);
+                return;
+            }
+            //保存时还要读取源文件，不能先截断它。先写到同目录的临时文件，再复制回源文件
+            File tempFile = File.createTempFile(inputFile.getName(), ".tmp", inputFile.getAbsoluteFile().getParentFile());
+            try {
+                try (OutputStream tempOutputStream = new FileOutputStream(tempFile)) {
+                    save(tempOutputStream);
+                }
+                os = new FileOutputStream(inputFile);
+                Files.copy(tempFile.toPath(), os);
+            } finally {
+                tempFile.delete();
+            }
         } else {
             throw new IOException("文件的默认路径（源文件路径）不存在");
         }
     }
 
+    /**
+     * 保存时是否需要读取源文件inputFilePath。如增量保存时未修改的部分直接从源文件复制，
+     * 此时覆盖保存到源文件不能先截断源文件
+     *
+     * @return 默认为false
+     */
+    protected boolean isInputFileReadOnSave() {
+        return false;
+    }
+
     /**
      * 将当前修改保存到输出流，子类实现具体写入到什么对象中
      *
@@ -91,7 +126,14 @@ public abstract class AbstractOffice {
      * @throws IOException
      */
     public void save(String outputPath) throws IOException {
-        os = new FileOutputStream(new File(outputPath));
+        File outputFile = new File(outputPath);
+        if (isInputFileReadOnSave() && StringUtils.isNotEmpty(inputFilePath)
+                && outputFile.getAbsoluteFile().equals(new File(inputFilePath).getAbsoluteFile())) {
+            //输出到源文件
+            save();
+            return;
+        }
+        os = new FileOutputStream(outputFile);
         save(os);
     }
 
@@ -0,0 +1,215 @@
+package com.jzy.office;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.POIXMLDocument;
+import org.apache.poi.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagePartName;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.zip.ZipEntry;
+
+/**
+ * @ClassName OoxmlIncrementalSaver
+ * @Author JinZhiyun
+ * @Description office 2007格式（.xlsx，.docx）文档的增量保存。
+ * poi保存时会把文档包中的每个部件都重新序列化、重新压缩一遍，即使只修改了一个单元格或一个段落。
+ * 该类只序列化给定的已修改部件，其他部件从源文件中按压缩后的原始字节直接复制，不解压也不重新压缩。
+ * <p>
+ * 源文件不存在，文档包中的部件与源文件中的条目不一致（新增、删除了部件），或已修改部件的关系发生了变化时不做增量保存，
+ * 由调用者执行完整保存
+ * @Date 2021/2/26 9:40
+ * @Version 1.0
+ **/
+public final class OoxmlIncrementalSaver {
+    /**
+     * 文档包的内容类型条目，不是部件
+     */
+    private static final String CONTENT_TYPES_ENTRY = "[Content_Types].xml";
+
+    /**
+     * POIXMLDocumentPart#commit()，将部件在内存中的修改写回文档包
+     */
+    private static final Method COMMIT_METHOD;
+
+    static {
+        try {
+            COMMIT_METHOD = POIXMLDocumentPart.class.getDeclaredMethod("commit");
+            COMMIT_METHOD.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private OoxmlIncrementalSaver() {
+    }
+
+    /**
+     * 增量保存文档到输出流：只序列化dirtyParts中的部件，其他条目从源文件原样复制。该方法不会关闭输出流
+     *
+     * @param document     文档对象
+     * @param sourcePath   文档的源文件路径
+     * @param dirtyParts   已修改的部件
+     * @param outputStream 输出流
+     * @return 成功增量保存返回true；不能增量保存时返回false，此时没有向输出流写入任何内容
+     * @throws IOException
+     */
+    public static boolean save(POIXMLDocument document, String sourcePath, Collection<? extends POIXMLDocumentPart> dirtyParts,
+                               OutputStream outputStream) throws IOException {
+        if (StringUtils.isEmpty(sourcePath) || !new File(sourcePath).isFile()) {
+            return false;
+        }
+        try (ZipFile zipFile = new ZipFile(sourcePath)) {
+            if (!hasSameParts(document, zipFile)) {
+                return false;
+            }
+            //序列化所有修改过的部件
+            Map<String, PackagePartName> dirtyPartNames = new HashMap<>();
+            for (POIXMLDocumentPart part : dirtyParts) {
+                commit(part);
+                PackagePartName partName = part.getPackagePart().getPartName();
+                if (isRelationshipsChanged(document.getPackage().getPart(partName))) {
+                    //关系部件（.rels）不会被重新序列化
+                    return false;
+                }
+                dirtyPartNames.put(toEntryName(partName), partName);
+            }
+
+            ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(new CloseShieldOutputStream(outputStream));
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                PackagePartName partName = dirtyPartNames.get(entry.getName());
+                if (partName != null) {
+                    //写入修改后的部件。部件提交后文档包中的部件对象可能已被替换，按名称重新获取
+                    ZipArchiveEntry newEntry = new ZipArchiveEntry(entry.getName());
+                    newEntry.setMethod(ZipEntry.DEFLATED);
+                    zipOut.putArchiveEntry(newEntry);
+                    try (InputStream in = document.getPackage().getPart(partName).getInputStream()) {
+                        IOUtils.copy(in, zipOut);
+                    }
+                    zipOut.closeArchiveEntry();
+                } else {
+                    //按原始压缩字节复制
+                    zipOut.addRawArchiveEntry(entry, zipFile.getRawInputStream(entry));
+                }
+            }
+            zipOut.close();
+        }
+        return true;
+    }
+
+    /**
+     * 文档包中的部件是否与源文件中的条目一一对应
+     *
+     * @param document 文档对象
+     * @param zipFile  源文件
+     * @return
+     * @throws IOException
+     */
+    private static boolean hasSameParts(POIXMLDocument document, ZipFile zipFile) throws IOException {
+        Set<String> entryNames = new HashSet<>();
+        Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+        while (entries.hasMoreElements()) {
+            ZipArchiveEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && !CONTENT_TYPES_ENTRY.equals(entry.getName())) {
+                entryNames.add(entry.getName());
+            }
+        }
+        List<PackagePart> parts;
+        try {
+            parts = document.getPackage().getParts();
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+        int partCount = 0;
+        for (PackagePart part : parts) {
+            if (!entryNames.contains(toEntryName(part.getPartName()))) {
+                //新增的部件
+                return false;
+            }
+            partCount++;
+        }
+        //有部件被删除
+        return partCount == entryNames.size();
+    }
+
+    /**
+     * 部件在内存中的关系是否与文档包中它的关系部件（即源文件中的.rels）不一致
+     *
+     * @param part 部件
+     * @return
+     * @throws IOException
+     */
+    private static boolean isRelationshipsChanged(PackagePart part) throws IOException {
+        PackageRelationshipCollection current;
+        PackageRelationshipCollection original;
+        try {
+            current = part.getRelationships();
+            //重新解析关系部件，得到源文件中的关系
+            original = new PackageRelationshipCollection(part);
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+        if (current.size() != original.size()) {
+            return true;
+        }
+        for (PackageRelationship relationship : current) {
+            PackageRelationship originalRelationship = original.getRelationshipByID(relationship.getId());
+            if (originalRelationship == null
+                    || !originalRelationship.getRelationshipType().equals(relationship.getRelationshipType())
+                    || !originalRelationship.getTargetURI().equals(relationship.getTargetURI())
+                    || originalRelationship.getTargetMode() != relationship.getTargetMode()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将部件在内存中的修改写回文档包
+     *
+     * @param part 部件
+     * @throws IOException
+     */
+    private static void commit(POIXMLDocumentPart part) throws IOException {
+        try {
+            COMMIT_METHOD.invoke(part);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 部件名称对应的压缩包条目名称，即去掉开头的/
+     *
+     * @param partName 部件名称
+     * @return
+     */
+    private static String toEntryName(PackagePartName partName) {
+        return partName.getName().substring(1);
+    }
+}
@@ -0,0 +1,147 @@
+package com.jzy.office;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.*;
+import java.util.Iterator;
+
+/**
+ * @ClassName StaxEventWriter
+ * @Author JinZhiyun
+ * @Description 将StAX事件写到XMLStreamWriter，用于流式改写office 2007格式文档包中的部件xml。
+ * 与XMLEventWriter不同，开始元素之后紧跟结束元素时写成空元素，与原文件的写法一致，不会使部件变大
+ * @Date 2021/2/26 15:10
+ * @Version 1.0
+ **/
+public class StaxEventWriter {
+    /**
+     * office保存的部件xml的声明。XMLStreamWriter写不出standalone声明，需要先直接写入输出流
+     */
+    public static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\r\n";
+
+    /**
+     * xml:space属性
+     */
+    public static final QName XML_SPACE = new QName(XMLConstants.XML_NS_URI, "space", "xml");
+
+    private XMLStreamWriter writer;
+
+    /**
+     * 尚未写出的开始元素，以及是否需要为它加上xml:space="preserve"
+     */
+    private StartElement pending;
+
+    private boolean pendingPreserveSpace;
+
+    public StaxEventWriter(XMLStreamWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * 写出一个事件
+     *
+     * @param event 事件
+     * @throws XMLStreamException
+     */
+    public void add(XMLEvent event) throws XMLStreamException {
+        add(event, false);
+    }
+
+    /**
+     * 写出一个事件
+     *
+     * @param event         事件
+     * @param preserveSpace 事件为开始元素时，是否为它加上xml:space="preserve"
+     * @throws XMLStreamException
+     */
+    public void add(XMLEvent event, boolean preserveSpace) throws XMLStreamException {
+        if (pending != null) {
+            boolean empty = event.isEndElement();
+            writeStartElement(empty);
+            if (empty) {
+                return;
+            }
+        }
+        switch (event.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                pending = event.asStartElement();
+                pendingPreserveSpace = preserveSpace;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                writer.writeEndElement();
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                writer.writeCharacters(event.asCharacters().getData());
+                break;
+            case XMLStreamConstants.CDATA:
+                writer.writeCData(event.asCharacters().getData());
+                break;
+            case XMLStreamConstants.COMMENT:
+                writer.writeComment(((Comment) event).getText());
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                ProcessingInstruction pi = (ProcessingInstruction) event;
+                writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                writer.writeEndDocument();
+                break;
+            default:
+                //xml声明已经写出
+                break;
+        }
+    }
+
+    /**
+     * 写出文本
+     *
+     * @param text 文本
+     * @throws XMLStreamException
+     */
+    public void writeCharacters(String text) throws XMLStreamException {
+        if (pending != null) {
+            writeStartElement(false);
+        }
+        writer.writeCharacters(text);
+    }
+
+    /**
+     * 写出尚未写出的开始元素及其命名空间声明和属性
+     *
+     * @param empty 是否写成空元素
+     * @throws XMLStreamException
+     */
+    @SuppressWarnings("unchecked")
+    private void writeStartElement(boolean empty) throws XMLStreamException {
+        QName name = pending.getName();
+        if (empty) {
+            writer.writeEmptyElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        } else {
+            writer.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        }
+        Iterator<Namespace> namespaces = pending.getNamespaces();
+        while (namespaces.hasNext()) {
+            Namespace namespace = namespaces.next();
+            if (namespace.isDefaultNamespaceDeclaration()) {
+                writer.writeDefaultNamespace(namespace.getNamespaceURI());
+            } else {
+                writer.writeNamespace(namespace.getPrefix(), namespace.getNamespaceURI());
+            }
+        }
+        Iterator<Attribute> attributes = pending.getAttributes();
+        while (attributes.hasNext()) {
+            Attribute attribute = attributes.next();
+            QName attrName = attribute.getName();
+            writer.writeAttribute(attrName.getPrefix(), attrName.getNamespaceURI(), attrName.getLocalPart(), attribute.getValue());
+        }
+        if (pendingPreserveSpace) {
+            writer.writeAttribute(XML_SPACE.getPrefix(), XML_SPACE.getNamespaceURI(), XML_SPACE.getLocalPart(), "preserve");
+        }
+        pending = null;
+        pendingPreserveSpace = false;
+    }
+}
@@ -7,8 +7,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Excel 包装类基类
@@ -31,6 +33,13 @@ public abstract class AbstractExcel<W extends Closeable> extends AbstractOffice
     @Getter
     protected ExcelVersionEnum version;
 
+    /**
+     * 结构性修改的次数。删除行（后面的行上移）、清空或删除sheet、调整sheet顺序等会改变行或sheet索引对应内容的操作都会使其增加，
+     * 依赖行索引的缓存（如{@link ExcelKeyIndex}）据此判断是否需要重建
+     */
+    @Getter
+    protected transient int structureModCount;
+
     /**
      * 根据后缀判断是否为 AbstractExcel 文件，后缀匹配xls、et和xlsx
      *
@@ -168,6 +177,42 @@ public abstract class AbstractExcel<W extends Closeable> extends AbstractOffice
         return r;
     }
 
+    /**
+     * 删除指定sheet中的多行，之后的行依次上移。行索引可以无序、重复，超出范围的行索引被忽略。
+     * 默认从后往前逐行删除，子类可以覆盖该方法，一次移动完所有保留的行
+     *
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @param rowIndexes 要删除的行，从0开始
+     * @return 是否删除了行
+     */
+    public boolean removeRows(int sheetIndex, int[] rowIndexes) {
+        int[] rows = sortedDistinctRows(rowIndexes, getRowCount(sheetIndex));
+        boolean r = false;
+        for (int i = rows.length - 1; i >= 0; i--) {
+            r = removeRow(sheetIndex, rows[i]) || r;
+        }
+        return r;
+    }
+
+    /**
+     * 排序、去重并去掉超出范围的行索引
+     *
+     * @param rowIndexes 行索引
+     * @param rowCount   sheet的行数
+     * @return
+     */
+    protected static int[] sortedDistinctRows(int[] rowIndexes, int rowCount) {
+        int[] rows = rowIndexes.clone();
+        Arrays.sort(rows);
+        int count = 0;
+        for (int row : rows) {
+            if (row >= 0 && row < rowCount && (count == 0 || rows[count - 1] != row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
     /**
      * 指定单元格是否为空
      *
@@ -424,4 +469,268 @@ public abstract class AbstractExcel<W extends Closeable> extends AbstractOffice
      * @return
      */
     public abstract List<String> readColumn(int sheetIndex, int startRowIndex, int endRowIndex, int colIndex);
-}
\ No newline at end of file
+
+    /**
+     * 逐行遍历sheet中从startRowIndex行到最后有效行的每一行
+     *
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param handler       每一行的回调
+     */
+    public void forEachRow(int sheetIndex, int startRowIndex, ExcelRowHandler handler) {
+        forEachRow(sheetIndex, startRowIndex, Integer.MAX_VALUE, handler);
+    }
+
+    /**
+     * 逐行遍历sheet中从startRowIndex行到endRowIndex行的每一行。遍历的行范围在开始时确定，回调中写入的新行不会被遍历。
+     * 子类可以覆盖该方法，用行对象直接读写单元格，避免每个单元格都重新查找sheet和行
+     *
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param endRowIndex   结束行（含）
+     * @param handler       每一行的回调
+     */
+    public void forEachRow(int sheetIndex, int startRowIndex, int endRowIndex, ExcelRowHandler handler) {
+        int rowCount = getRowCount(sheetIndex);
+        if (endRowIndex > rowCount - 1) {
+            endRowIndex = rowCount - 1;
+        }
+        IndexedExcelRow row = new IndexedExcelRow(sheetIndex);
+        for (int i = startRowIndex; i <= endRowIndex; i++) {
+            row.rowIndex = i;
+            handler.handle(row);
+        }
+    }
+
+    /**
+     * 根据关键字列的值更新目标列。如按学号写入注册情况：对startRowIndex行开始的每一行，读出关键字列的值，
+     * 从values中取出对应的值写入目标列。关键字为空的行跳过，没有对应值（或值为null）的行不修改
+     *
+     * @param sheetIndex        指定 Sheet 页，从 0 开始
+     * @param startRowIndex     起始行（含）
+     * @param keyColumnIndex    关键字列，从0开始
+     * @param targetColumnIndex 目标列，从0开始
+     * @param values            关键字→要写入的值
+     * @return 更新结果，包括没有对应值的关键字和sheet中没有出现的关键字
+     */
+    public KeyedUpdateResult updateColumnByKey(int sheetIndex, int startRowIndex, int keyColumnIndex, int targetColumnIndex,
+                                               Map<String, String> values) {
+        return updateByKey(sheetIndex, startRowIndex, keyColumnIndex, new LinkedHashSet<>(values.keySet()),
+                (key, row) -> writeValue(row, targetColumnIndex, values.get(key)));
+    }
+
+    /**
+     * 根据关键字列的值更新目标列，值由函数给出。关键字为空的行跳过，函数返回null的行不修改
+     *
+     * @param sheetIndex        指定 Sheet 页，从 0 开始
+     * @param startRowIndex     起始行（含）
+     * @param keyColumnIndex    关键字列，从0开始
+     * @param targetColumnIndex 目标列，从0开始
+     * @param valueFunction     输入关键字，返回要写入的值
+     * @return 更新结果，包括没有对应值的关键字
+     */
+    public KeyedUpdateResult updateColumnByKey(int sheetIndex, int startRowIndex, int keyColumnIndex, int targetColumnIndex,
+                                               Function<String, String> valueFunction) {
+        return updateByKey(sheetIndex, startRowIndex, keyColumnIndex, null,
+                (key, row) -> writeValue(row, targetColumnIndex, valueFunction.apply(key)));
+    }
+
+    /**
+     * 根据关键字列的值同时更新多个目标列。值列表中的第i个值写入第i个目标列，为null的值对应的列不修改
+     *
+     * @param sheetIndex          指定 Sheet 页，从 0 开始
+     * @param startRowIndex       起始行（含）
+     * @param keyColumnIndex      关键字列，从0开始
+     * @param targetColumnIndexes 目标列，从0开始
+     * @param values              关键字→要写入的值列表
+     * @return 更新结果，包括没有对应值的关键字和sheet中没有出现的关键字
+     */
+    public KeyedUpdateResult updateColumnsByKey(int sheetIndex, int startRowIndex, int keyColumnIndex, int[] targetColumnIndexes,
+                                                Map<String, List<String>> values) {
+        return updateByKey(sheetIndex, startRowIndex, keyColumnIndex, new LinkedHashSet<>(values.keySet()),
+                (key, row) -> writeValues(row, targetColumnIndexes, values.get(key)));
+    }
+
+    /**
+     * 根据关键字列的值同时更新多个目标列，值由函数给出。值列表中的第i个值写入第i个目标列，为null的值对应的列不修改
+     *
+     * @param sheetIndex          指定 Sheet 页，从 0 开始
+     * @param startRowIndex       起始行（含）
+     * @param keyColumnIndex      关键字列，从0开始
+     * @param targetColumnIndexes 目标列，从0开始
+     * @param valuesFunction      输入关键字，返回要写入的值列表
+     * @return 更新结果，包括没有对应值的关键字
+     */
+    public KeyedUpdateResult updateColumnsByKey(int sheetIndex, int startRowIndex, int keyColumnIndex, int[] targetColumnIndexes,
+                                                Function<String, List<String>> valuesFunction) {
+        return updateByKey(sheetIndex, startRowIndex, keyColumnIndex, null,
+                (key, row) -> writeValues(row, targetColumnIndexes, valuesFunction.apply(key)));
+    }
+
+    /**
+     * 创建sheet上的查询，第一行为表头，从第二行开始查询
+     *
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @return 查询对象
+     */
+    public ExcelQuery query(int sheetIndex) {
+        return new ExcelQuery(this, sheetIndex);
+    }
+
+    /**
+     * 统计sheet每一列的概况，第一行为表头。参见{@link ExcelColumnProfiler}
+     *
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @return 各列的统计
+     */
+    public ExcelColumnProfiler.SheetProfile profileColumns(int sheetIndex) {
+        return new ExcelColumnProfiler().profile(this, sheetIndex);
+    }
+
+    /**
+     * 转换sheet中的一列，相同的值只计算一次（最近256个不同值的结果会被缓存）。参见{@link ExcelColumnTransformer}
+     *
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param colIndex      列索引，从0开始
+     * @param function      转换函数，输入非空的单元格值
+     * @param generator     创建结果数组，如String[]::new
+     * @param <T>           结果的类型
+     * @return 结果数组，下标为行索引减去起始行；单元格为空时为null
+     */
+    public <T> T[] transformColumn(int sheetIndex, int startRowIndex, int colIndex, Function<? super String, ? extends T> function,
+                                   IntFunction<T[]> generator) {
+        return new ExcelColumnTransformer().transform(this, sheetIndex, startRowIndex, colIndex, function, generator);
+    }
+
+    /**
+     * 根据前1000行推断sheet每一列的类型，第一行为表头。参见{@link ExcelSchemaInferrer}
+     *
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @return 列类型及编译好的解码方式
+     */
+    public ExcelSchema inferSchema(int sheetIndex) {
+        return new ExcelSchemaInferrer().infer(this, sheetIndex);
+    }
+
+    /**
+     * 查找关键字（一列或多列）重复的行，值去掉首尾空白后比较。需要忽略大小写等其他规范化方式时使用{@link ExcelDuplicateDetector}
+     *
+     * @param sheetIndex       指定 Sheet 页，从 0 开始
+     * @param startRowIndex    起始行（含），之前的行（如表头）不参与查找
+     * @param keyColumnIndexes 关键字列，从0开始
+     * @return 重复行的报告
+     */
+    public ExcelDuplicateDetector.DuplicateReport findDuplicates(int sheetIndex, int startRowIndex, int... keyColumnIndexes) {
+        return new ExcelDuplicateDetector().find(this, sheetIndex, startRowIndex, keyColumnIndexes);
+    }
+
+    /**
+     * 删除关键字（一列或多列）重复的行，每个关键字只保留第一次出现的行，所有重复行一次删除
+     *
+     * @param sheetIndex       指定 Sheet 页，从 0 开始
+     * @param startRowIndex    起始行（含），之前的行（如表头）不参与查找
+     * @param keyColumnIndexes 关键字列，从0开始
+     * @return 重复行的报告，其中的行索引为删除前的索引
+     */
+    public ExcelDuplicateDetector.DuplicateReport removeDuplicates(int sheetIndex, int startRowIndex, int... keyColumnIndexes) {
+        return new ExcelDuplicateDetector().removeDuplicates(this, sheetIndex, startRowIndex, keyColumnIndexes);
+    }
+
+    /**
+     * 逐行读取关键字并交给updater更新当前行
+     *
+     * @param sheetIndex     指定 Sheet 页，从 0 开始
+     * @param startRowIndex  起始行（含）
+     * @param keyColumnIndex 关键字列，从0开始
+     * @param unusedKeys     值集合中的所有关键字，遍历时删去sheet中出现的关键字；由函数提供值时为null
+     * @param updater        更新当前行，没有对应值时返回false
+     * @return
+     */
+    private KeyedUpdateResult updateByKey(int sheetIndex, int startRowIndex, int keyColumnIndex, Set<String> unusedKeys,
+                                          BiPredicate<String, ExcelRow> updater) {
+        KeyedUpdateResult result = new KeyedUpdateResult();
+        forEachRow(sheetIndex, startRowIndex, row -> {
+            String key = row.read(keyColumnIndex);
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            if (unusedKeys != null) {
+                unusedKeys.remove(key);
+            }
+            if (updater.test(key, row)) {
+                result.rowUpdated();
+            } else {
+                result.keyUnmatched(key);
+            }
+        });
+        if (unusedKeys != null) {
+            result.setUnusedKeys(unusedKeys);
+        }
+        return result;
+    }
+
+    private static boolean writeValue(ExcelRow row, int colIndex, String value) {
+        if (value == null) {
+            return false;
+        }
+        row.write(colIndex, value);
+        return true;
+    }
+
+    private static boolean writeValues(ExcelRow row, int[] colIndexes, List<String> values) {
+        if (values == null) {
+            return false;
+        }
+        for (int i = 0; i < colIndexes.length && i < values.size(); i++) {
+            String value = values.get(i);
+            if (value != null) {
+                row.write(colIndexes[i], value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 通过sheet索引和行索引读写单元格的行对象，用于不覆盖{@link #forEachRow(int, int, int, ExcelRowHandler)}的子类
+     */
+    private class IndexedExcelRow implements ExcelRow {
+        private int sheetIndex;
+
+        private int rowIndex;
+
+        IndexedExcelRow(int sheetIndex) {
+            this.sheetIndex = sheetIndex;
+        }
+
+        @Override
+        public int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        @Override
+        public boolean isNullRow() {
+            return AbstractExcel.this.isNullRow(sheetIndex, rowIndex);
+        }
+
+        @Override
+        public int getColumnCount() {
+            return AbstractExcel.this.getColumnCount(sheetIndex, rowIndex);
+        }
+
+        @Override
+        public String read(int colIndex) {
+            return AbstractExcel.this.read(sheetIndex, rowIndex, colIndex);
+        }
+
+        @Override
+        public boolean write(int colIndex, String value) {
+            return AbstractExcel.this.write(sheetIndex, rowIndex, colIndex, value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.jzy.office.excel;
+
+/**
+ * @ClassName CellValues
+ * @Author JinZhiyun
+ * @Description 单元格字符串值的解析工具
+ * @Date 2021/3/1 9:40
+ * @Version 1.0
+ **/
+class CellValues {
+    private CellValues() {
+    }
+
+    /**
+     * 将十进制数（可以有正负号、小数部分和指数部分）解析为double。先检查格式，不是数字时不抛出再捕获NumberFormatException
+     *
+     * @param value 值
+     * @return 不是数字时返回NaN
+     */
+    static double parseNumber(String value) {
+        return isNumber(value) ? Double.parseDouble(value) : Double.NaN;
+    }
+
+    /**
+     * 是否为十进制数：可选的正负号、整数部分或小数部分至少一个数字、可选的指数部分，首尾不能有空白
+     *
+     * @param value 值
+     * @return
+     */
+    static boolean isNumber(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        int length = value.length();
+        int i = 0;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && isDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
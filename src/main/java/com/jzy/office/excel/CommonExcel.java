@@ -1,25 +1,32 @@
 package com.jzy.office.excel;
 
+import com.jzy.office.OoxmlIncrementalSaver;
 import com.jzy.office.exception.InvalidFileTypeException;
 import com.jzy.util.MyTimeUtils;
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.poi.POIXMLDocumentPart;
 import org.apache.poi.hssf.usermodel.HSSFDateUtil;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.model.CalculationChain;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 
 /**
  * @ClassName CommonExcel
  * @Author JinZhiyun
  * @Description Excel 2003 2007 版本的通用包装类，支持.xls, .xlsx, .et文件的解析
+ * <p>
+ * 开启{@link #setIncrementalSave(boolean)}后，由文件构造的.xlsx在保存时只重新序列化修改过的sheet（以及共享字符串表、样式表），
+ * 其他部件从源文件原样复制，参见{@link OoxmlIncrementalSaver}。删除中间行、增删sheet、修改sheet名称或顺序，
+ * 以及通过{@link #getWorkbook()}直接操作工作簿后，保存时仍会完整写出整个工作簿
  * @Date 2021/1/23 22:06
  * @Version 1.0
  **/
@@ -33,6 +40,21 @@ public class CommonExcel extends AbstractExcel<Workbook> {
     @Setter
     private String datePattern = MyTimeUtils.FORMAT_YMDHMS_BACKUP;
 
+    /**
+     * 修改过单元格的sheet，增量保存时需要重新序列化
+     */
+    private final transient Set<Sheet> dirtySheets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * 是否修改过样式表
+     */
+    private transient boolean stylesDirty;
+
+    /**
+     * 是否需要完整保存。发生了结构性修改，或工作簿已交给外部直接操作时无法只保存部分部件
+     */
+    private transient boolean fullSaveRequired;
+
     /**
      * 由输入文件路径构造excel对象
      *
@@ -112,9 +134,70 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         return "第 " + (sheetIndex + 1) + "个sheet 页，名称： " + getSheetName(sheetIndex) + "，共 " + getRowCount(sheetIndex) + "行！";
     }
 
+    /**
+     * 获取工作簿对象。调用后无法再跟踪对工作簿的修改，之后的保存都将完整写出整个工作簿
+     *
+     * @return
+     */
+    @Override
+    public Workbook getWorkbook() {
+        fullSaveRequired = true;
+        return workbook;
+    }
+
     @Override
     public void save(OutputStream outputStream) throws IOException {
-        workbook.write(outputStream);
+        if (!saveIncrementally(outputStream)) {
+            workbook.write(outputStream);
+        }
+    }
+
+    @Override
+    protected boolean isInputFileReadOnSave() {
+        return incrementalSave && workbook instanceof XSSFWorkbook && !fullSaveRequired;
+    }
+
+    /**
+     * 增量保存.xlsx，只重新序列化修改过的部件
+     *
+     * @param outputStream 输出流
+     * @return 不能增量保存时返回false
+     * @throws IOException
+     */
+    private boolean saveIncrementally(OutputStream outputStream) throws IOException {
+        if (!isInputFileReadOnSave()) {
+            return false;
+        }
+        XSSFWorkbook xssfWorkbook = (XSSFWorkbook) workbook;
+        List<POIXMLDocumentPart> dirtyParts = new ArrayList<>();
+        for (Sheet sheet : dirtySheets) {
+            dirtyParts.add((XSSFSheet) sheet);
+        }
+        if (!dirtySheets.isEmpty()) {
+            //写入字符串会添加共享字符串，删除公式会修改计算链
+            SharedStringsTable sharedStrings = xssfWorkbook.getSharedStringSource();
+            if (sharedStrings != null) {
+                dirtyParts.add(sharedStrings);
+            }
+            CalculationChain calculationChain = xssfWorkbook.getCalculationChain();
+            if (calculationChain != null) {
+                dirtyParts.add(calculationChain);
+            }
+        }
+        StylesTable styles = xssfWorkbook.getStylesSource();
+        if (stylesDirty && styles != null) {
+            dirtyParts.add(styles);
+        }
+        return OoxmlIncrementalSaver.save(xssfWorkbook, inputFilePath, dirtyParts, outputStream);
+    }
+
+    /**
+     * 标记sheet的单元格被修改过
+     *
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     */
+    private void markSheetDirty(int sheetIndex) {
+        dirtySheets.add(workbook.getSheetAt(sheetIndex));
     }
 
     @Override
@@ -155,12 +238,16 @@ public class CommonExcel extends AbstractExcel<Workbook> {
 
     @Override
     public boolean setSheetName(int sheetIndex, String name) {
+        //sheet名称会影响公式和定义的名称
+        fullSaveRequired = true;
         workbook.setSheetName(sheetIndex, name);
         return true;
     }
 
     @Override
     public void setSheetOrder(String sheetName, int sheetIndex) {
+        fullSaveRequired = true;
+        structureModCount++;
         workbook.setSheetOrder(sheetName, sheetIndex);
     }
 
@@ -175,18 +262,31 @@ public class CommonExcel extends AbstractExcel<Workbook> {
 
     @Override
     public boolean removeSheetAt(int sheetIndex) {
+        fullSaveRequired = true;
+        structureModCount++;
         workbook.removeSheetAt(sheetIndex);
         return true;
     }
 
     public Sheet createSheet() {
+        fullSaveRequired = true;
         return workbook.createSheet();
     }
 
     public Sheet createSheet(String sheetName) {
+        fullSaveRequired = true;
         return workbook.createSheet(sheetName);
     }
 
+    /**
+     * 创建当前表格的只读快照，快照可以被多个线程同时读取。参见{@link ExcelSnapshot}
+     *
+     * @return 所有sheet的只读快照
+     */
+    public ExcelSnapshot snapshot() {
+        return new ExcelSnapshot(this);
+    }
+
 
     @Override
     public boolean removeRow(int sheetIndex, int rowIndex) {
@@ -195,14 +295,62 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         if (rowIndex < 0 || rowIndex > lastRowNum) {
             return false;
         }
+        structureModCount++;
         if (rowIndex != lastRowNum) {
+            //移动行会修改其他sheet和定义的名称中引用该sheet的公式
+            fullSaveRequired = true;
             sheet.shiftRows(rowIndex + 1, lastRowNum, -1);// 将行号为rowIndex+1一直到行号为lastRowNum的单元格全部上移一行，以便删除rowIndex行
         } else {
+            Row removingRow = sheet.getRow(rowIndex);
+            if (removingRow != null) {
+                markSheetDirty(sheetIndex);
+                sheet.removeRow(removingRow);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 删除指定sheet中的多行。先删除所有指定的行，再把相邻两个被删除行之间保留的行作为一段整体上移，
+     * 每段只移动一次，不像逐行removeRow那样每删除一行都移动其后的所有行
+     *
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @param rowIndexes 要删除的行，从0开始
+     * @return 是否删除了行
+     */
+    @Override
+    public boolean removeRows(int sheetIndex, int[] rowIndexes) {
+        Sheet sheet = workbook.getSheetAt(sheetIndex);
+        int[] rows = sortedDistinctRows(rowIndexes, getRowCount(sheetIndex));
+        if (rows.length == 0) {
+            return false;
+        }
+        structureModCount++;
+        markSheetDirty(sheetIndex);
+        int lastRowNum = sheet.getLastRowNum();
+        for (int rowIndex : rows) {
             Row removingRow = sheet.getRow(rowIndex);
             if (removingRow != null) {
                 sheet.removeRow(removingRow);
             }
         }
+        for (int i = 0; i < rows.length; i++) {
+            //第i个和第i+1个被删除行之间的行上移i+1行
+            int start = rows[i] + 1;
+            int end = i + 1 < rows.length ? rows[i + 1] - 1 : lastRowNum;
+            if (start <= end) {
+                //移动行会修改其他sheet和定义的名称中引用该sheet的公式
+                fullSaveRequired = true;
+                sheet.shiftRows(start, end, -(i + 1));
+            }
+        }
+        //HSSF移动行时在原位置留下没有单元格的空行，删除移动后空出的末尾各行
+        for (int rowIndex = lastRowNum; rowIndex > lastRowNum - rows.length; rowIndex--) {
+            Row vacatedRow = sheet.getRow(rowIndex);
+            if (vacatedRow != null) {
+                sheet.removeRow(vacatedRow);
+            }
+        }
         return true;
     }
 
@@ -222,6 +370,7 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         if (isNullRow(sheetIndex, rowIndex)) {
             createRow(sheetIndex, rowIndex);
         }
+        markSheetDirty(sheetIndex);
         sheet.getRow(rowIndex).createCell(colIndex);
         return true;
     }
@@ -235,6 +384,11 @@ public class CommonExcel extends AbstractExcel<Workbook> {
     @Override
     public boolean createRow(int sheetIndex, int rowIndex) {
         Sheet sheet = workbook.getSheetAt(sheetIndex);
+        markSheetDirty(sheetIndex);
+        if (sheet.getRow(rowIndex) != null) {
+            //已存在的行被清空
+            structureModCount++;
+        }
         sheet.createRow(rowIndex);
         return true;
     }
@@ -249,6 +403,7 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         if (isNullCell(sheetIndex, rowIndex, colIndex)) {
             createCell(sheetIndex, rowIndex, colIndex);
         }
+        markSheetDirty(sheetIndex);
         sheet.getRow(rowIndex).getCell(colIndex).setCellValue(value);
         return true;
     }
@@ -308,6 +463,27 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         return list;
     }
 
+    /**
+     * 逐行遍历sheet。回调中的行对象直接持有当前行，读写单元格时不再重新查找sheet和行
+     *
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param endRowIndex   结束行（含）
+     * @param handler       每一行的回调
+     */
+    @Override
+    public void forEachRow(int sheetIndex, int startRowIndex, int endRowIndex, ExcelRowHandler handler) {
+        int rowCount = getRowCount(sheetIndex);
+        if (endRowIndex > rowCount - 1) {
+            endRowIndex = rowCount - 1;
+        }
+        SheetRow row = new SheetRow(sheetIndex);
+        for (int i = startRowIndex; i <= endRowIndex; i++) {
+            row.moveTo(i);
+            handler.handle(row);
+        }
+    }
+
     /**
      * 设置cell 样式
      *
@@ -325,12 +501,15 @@ public class CommonExcel extends AbstractExcel<Workbook> {
             return false;
         }
         Cell cell = sheet.getRow(rowIndex).getCell(colIndex);
+        //样式可能来自当前工作簿新建的样式
+        markSheetDirty(sheetIndex);
+        stylesDirty = true;
         cell.setCellStyle(style);
         return true;
     }
 
     /**
-     * 获得cell样式
+     * 获得cell样式。返回的是工作簿中的样式对象，可以直接修改，因此增量保存时会重新写出样式表
      *
      * @param sheetIndex 指定 Sheet 页，从 0 开始
      * @param rowIndex   行索引
@@ -347,6 +526,7 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         if (cell == null) {
             return null;
         }
+        stylesDirty = true;
         return cell.getCellStyle();
     }
 
@@ -360,6 +540,7 @@ public class CommonExcel extends AbstractExcel<Workbook> {
      * @return
      */
     public boolean updateCellBackgroundColor(int sheetIndex, int rowIndex, int colIndex, short colorIndex) {
+        stylesDirty = true;
         CellStyle cellStyle = workbook.createCellStyle();
         cellStyle.cloneStyleFrom(getStyle(sheetIndex, rowIndex, colIndex));
         cellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);  //填充单元格
@@ -379,6 +560,7 @@ public class CommonExcel extends AbstractExcel<Workbook> {
      */
     public void region(int sheetIndex, int firstRow, int lastRow, int firstCol, int lastCol) {
         Sheet sheet = workbook.getSheetAt(sheetIndex);
+        markSheetDirty(sheetIndex);
         sheet.addMergedRegion(new CellRangeAddress(firstRow, lastRow, firstCol, lastCol));
     }
 
@@ -404,8 +586,7 @@ public class CommonExcel extends AbstractExcel<Workbook> {
                 if (HSSFDateUtil.isCellDateFormatted(cell)) {
                     Date date = cell.getDateCellValue();
                     if (datePattern != null) {
-                        SimpleDateFormat sdf = new SimpleDateFormat(datePattern);
-                        strCell = sdf.format(date);
+                        strCell = MyTimeUtils.dateToString(date, datePattern);
                     } else {
                         strCell = date.toString();
                     }
@@ -423,4 +604,80 @@ public class CommonExcel extends AbstractExcel<Workbook> {
         }
         return strCell;
     }
+
+    /**
+     * 持有当前行的行对象
+     */
+    private class SheetRow implements ExcelRow {
+        private int sheetIndex;
+
+        private Sheet sheet;
+
+        private int rowIndex;
+
+        /**
+         * 当前行，为空时为null
+         */
+        private Row row;
+
+        /**
+         * 是否已经标记过sheet被修改
+         */
+        private boolean dirty;
+
+        SheetRow(int sheetIndex) {
+            this.sheetIndex = sheetIndex;
+            this.sheet = workbook.getSheetAt(sheetIndex);
+        }
+
+        void moveTo(int rowIndex) {
+            this.rowIndex = rowIndex;
+            this.row = sheet.getRow(rowIndex);
+        }
+
+        @Override
+        public int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        @Override
+        public boolean isNullRow() {
+            return row == null;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return row == null ? -1 : row.getLastCellNum();
+        }
+
+        @Override
+        public String read(int colIndex) {
+            if (row == null || colIndex < 0) {
+                return null;
+            }
+            return getCellValueToString(row.getCell(colIndex));
+        }
+
+        @Override
+        public boolean write(int colIndex, String value) {
+            if (!dirty) {
+                markSheetDirty(sheetIndex);
+                dirty = true;
+            }
+            if (row == null) {
+                row = sheet.createRow(rowIndex);
+            }
+            Cell cell = row.getCell(colIndex);
+            if (cell == null) {
+                cell = row.createCell(colIndex);
+            }
+            cell.setCellValue(value);
+            return true;
+        }
+    }
 }
@@ -0,0 +1,417 @@
+package com.jzy.office.excel;
+
+import com.jzy.office.exception.InvalidFileTypeException;
+import com.jzy.util.MyTimeUtils;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @ClassName CsvExcelConverter
+ * @Author JinZhiyun
+ * @Description 将CSV转换为excel 2007（.xlsx）。用{@link CsvReader}逐条读取记录，通过SXSSF流式写入：
+ * 内存中只保留最近{@link #rowAccessWindowSize}行，其余的行写入临时文件，转换本身占用的内存与CSV的行数无关。
+ * <p>
+ * 开启类型推断时，先读取{@link #sampleRowCount}条记录作为样本，逐列判断类型：所有非空值都是数字的列写成数值单元格，
+ * 都符合同一个日期格式的列写成日期单元格（单元格格式即该日期格式），其余的列写成文本单元格。样本之后的值不符合该列类型时按文本写入。
+ * 以0开头的编号、超过{@link #MAX_INTEGER_DIGITS}位整数的身份证号等视为文本，避免丢失前导0或精度。
+ * <p>
+ * 一个sheet写满{@link #maxRowsPerSheet}行后自动写入下一个sheet，每个sheet都重复写入表头
+ * @Date 2021/2/28 10:20
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class CsvExcelConverter {
+    /**
+     * 读取缓冲区的字节数
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 推断为数值时整数部分的最大位数，更长的数字串（如身份证号、银行卡号）按文本写入
+     */
+    public static final int MAX_INTEGER_DIGITS = 11;
+
+    /**
+     * 推断为数值时的最大有效位数，double只能精确表示15位
+     */
+    private static final int MAX_DIGITS = 15;
+
+    /**
+     * 列类型：文本
+     */
+    private static final int TYPE_STRING = -2;
+
+    /**
+     * 列类型：数值。大于等于0时为日期，值为日期格式的索引
+     */
+    private static final int TYPE_NUMERIC = -1;
+
+    /**
+     * 列类型：样本中全为空
+     */
+    private static final int TYPE_UNKNOWN = -3;
+
+    /**
+     * 字段分隔符，默认为逗号
+     */
+    private char delimiter = ',';
+
+    /**
+     * 读取CSV文件时使用的字符集，默认UTF-8
+     */
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * 表头的行数，表头不参与类型推断，并在每个sheet开头重复写入
+     */
+    private int headerRowCount = 1;
+
+    /**
+     * 是否推断数值、日期列的类型，关闭时全部写成文本
+     */
+    private boolean inferTypes = true;
+
+    /**
+     * 类型推断的样本记录数
+     */
+    private int sampleRowCount = 1000;
+
+    /**
+     * 类型推断时尝试的日期格式，按顺序匹配
+     */
+    private List<String> datePatterns = new ArrayList<>(Arrays.asList(MyTimeUtils.FORMAT_YMD, MyTimeUtils.FORMAT_YMDHMS,
+            MyTimeUtils.FORMAT_YMDHMS_BACKUP, "yyyy/MM/dd"));
+
+    /**
+     * SXSSF在内存中保留的行数
+     */
+    private int rowAccessWindowSize = 100;
+
+    /**
+     * 每个sheet的最大行数（含表头），默认为excel 2007的行数上限
+     */
+    private int maxRowsPerSheet = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    /**
+     * sheet名称前缀，sheet依次命名为前缀加序号（从1开始）
+     */
+    private String sheetNamePrefix = "Sheet";
+
+    /**
+     * 是否压缩SXSSF的临时文件，压缩后临时文件小得多，但转换稍慢
+     */
+    private boolean compressTempFiles = true;
+
+    /**
+     * 将CSV文件转换为.xlsx文件
+     *
+     * @param csvFile    CSV文件路径
+     * @param outputFile 输出文件路径，必须为.xlsx
+     * @return 转换的统计结果
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public ConvertResult convert(String csvFile, String outputFile) throws IOException, InvalidFileTypeException {
+        if (!ExcelVersionEnum.VERSION_2007.equals(ExcelVersionEnum.getVersion(outputFile))) {
+            throw new InvalidFileTypeException("错误的文件类型！" + CsvExcelConverter.class + "仅支持文件格式：" + ExcelVersionEnum.VERSION_2007.getSuffix());
+        }
+        try (Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(csvFile), BUFFER_SIZE), charset);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), BUFFER_SIZE)) {
+            return convert(reader, out);
+        }
+    }
+
+    /**
+     * 将CSV转换为.xlsx写入输出流。该方法不会关闭输入输出流
+     *
+     * @param reader       CSV字符输入流
+     * @param outputStream 输出流
+     * @return 转换的统计结果
+     * @throws IOException
+     */
+    public ConvertResult convert(Reader reader, OutputStream outputStream) throws IOException {
+        if (maxRowsPerSheet <= headerRowCount || maxRowsPerSheet > SpreadsheetVersion.EXCEL2007.getMaxRows()) {
+            throw new IllegalArgumentException("每个sheet的最大行数必须大于表头行数且不超过" + SpreadsheetVersion.EXCEL2007.getMaxRows());
+        }
+        long start = System.currentTimeMillis();
+        ConvertResult result = new ConvertResult();
+        //不能关闭CsvReader，否则会关闭调用方的输入流
+        CsvReader csvReader = new CsvReader(reader, delimiter);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindowSize);
+        workbook.setCompressTempFiles(compressTempFiles);
+        try {
+            List<String[]> headers = new ArrayList<>();
+            String[] record;
+            while (headers.size() < headerRowCount && (record = csvReader.readRecord()) != null) {
+                headers.add(record);
+            }
+            List<String[]> samples = new ArrayList<>();
+            while (inferTypes && samples.size() < sampleRowCount && (record = csvReader.readRecord()) != null) {
+                samples.add(record);
+            }
+            SheetWriter writer = new SheetWriter(workbook, headers, inferColumnTypes(samples), result);
+            for (String[] sample : samples) {
+                writer.writeRecord(sample);
+            }
+            samples = null;
+            while ((record = csvReader.readRecord()) != null) {
+                writer.writeRecord(record);
+            }
+            if (result.sheetCount == 0) {
+                //CSV中只有表头或为空
+                writer.newSheet();
+            }
+            workbook.write(outputStream);
+            outputStream.flush();
+        } finally {
+            //删除临时文件
+            workbook.dispose();
+            workbook.close();
+        }
+        result.charCount = csvReader.getCharCount();
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * 根据样本推断每列的类型
+     *
+     * @param samples 样本记录
+     * @return 每列的类型
+     */
+    private int[] inferColumnTypes(List<String[]> samples) {
+        int columnCount = 0;
+        for (String[] sample : samples) {
+            columnCount = Math.max(columnCount, sample.length);
+        }
+        int[] types = new int[columnCount];
+        Arrays.fill(types, TYPE_UNKNOWN);
+        DateTimeFormatter[] formatters = createFormatters();
+        for (String[] sample : samples) {
+            for (int i = 0; i < sample.length; i++) {
+                String value = sample[i];
+                if (value.isEmpty() || types[i] == TYPE_STRING) {
+                    continue;
+                }
+                if (types[i] == TYPE_UNKNOWN) {
+                    types[i] = detectType(value, formatters);
+                } else if (types[i] == TYPE_NUMERIC) {
+                    if (!isNumeric(value)) {
+                        types[i] = TYPE_STRING;
+                    }
+                } else if (MyTimeUtils.parseDate(value, formatters[types[i]]) == null) {
+                    types[i] = TYPE_STRING;
+                }
+            }
+        }
+        for (int i = 0; i < columnCount; i++) {
+            if (types[i] == TYPE_UNKNOWN) {
+                types[i] = TYPE_STRING;
+            }
+        }
+        return types;
+    }
+
+    private int detectType(String value, DateTimeFormatter[] formatters) {
+        if (isNumeric(value)) {
+            return TYPE_NUMERIC;
+        }
+        for (int i = 0; i < formatters.length; i++) {
+            if (MyTimeUtils.parseDate(value, formatters[i]) != null) {
+                return i;
+            }
+        }
+        return TYPE_STRING;
+    }
+
+    private DateTimeFormatter[] createFormatters() {
+        DateTimeFormatter[] formatters = new DateTimeFormatter[datePatterns.size()];
+        for (int i = 0; i < formatters.length; i++) {
+            formatters[i] = MyTimeUtils.getFormatter(datePatterns.get(i));
+        }
+        return formatters;
+    }
+
+    /**
+     * 是否为可以无损写成数值的十进制数：可选的负号、不以0开头的整数部分（0本身除外）、可选的小数部分，
+     * 整数部分不超过{@link #MAX_INTEGER_DIGITS}位，总位数不超过{@link #MAX_DIGITS}位
+     *
+     * @param value 值
+     * @return
+     */
+    static boolean isNumeric(String value) {
+        int length = value.length();
+        int i = value.charAt(0) == '-' ? 1 : 0;
+        int integerStart = i;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        int integerDigits = i - integerStart;
+        if (integerDigits == 0 || integerDigits > MAX_INTEGER_DIGITS
+                || (integerDigits > 1 && value.charAt(integerStart) == '0')) {
+            return false;
+        }
+        if (i == length) {
+            return true;
+        }
+        if (value.charAt(i++) != '.' || i == length) {
+            return false;
+        }
+        int fractionStart = i;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i == length && integerDigits + (length - fractionStart) <= MAX_DIGITS;
+    }
+
+    /**
+     * 按列类型依次写入记录，写满一个sheet后创建下一个sheet
+     */
+    private class SheetWriter {
+        private SXSSFWorkbook workbook;
+
+        private List<String[]> headers;
+
+        private int[] columnTypes;
+
+        private DateTimeFormatter[] formatters;
+
+        /**
+         * 每种日期格式的单元格样式，用到时才创建
+         */
+        private CellStyle[] dateStyles;
+
+        private ConvertResult result;
+
+        private Sheet sheet;
+
+        /**
+         * 当前sheet中下一行的索引
+         */
+        private int rowIndex;
+
+        SheetWriter(SXSSFWorkbook workbook, List<String[]> headers, int[] columnTypes, ConvertResult result) {
+            this.workbook = workbook;
+            this.headers = headers;
+            this.columnTypes = columnTypes;
+            this.formatters = createFormatters();
+            this.dateStyles = new CellStyle[formatters.length];
+            this.result = result;
+        }
+
+        void newSheet() {
+            sheet = workbook.createSheet(sheetNamePrefix + (++result.sheetCount));
+            rowIndex = 0;
+            for (String[] header : headers) {
+                Row row = sheet.createRow(rowIndex++);
+                for (int i = 0; i < header.length; i++) {
+                    if (!header[i].isEmpty()) {
+                        row.createCell(i).setCellValue(header[i]);
+                        result.cellCount++;
+                    }
+                }
+            }
+        }
+
+        void writeRecord(String[] record) {
+            if (sheet == null || rowIndex >= maxRowsPerSheet) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < record.length; i++) {
+                String value = record[i];
+                if (value.isEmpty()) {
+                    continue;
+                }
+                Cell cell = row.createCell(i);
+                int type = i < columnTypes.length ? columnTypes[i] : TYPE_STRING;
+                if (type == TYPE_NUMERIC && isNumeric(value)) {
+                    cell.setCellValue(Double.parseDouble(value));
+                } else if (type >= 0) {
+                    Date date = MyTimeUtils.parseDate(value, formatters[type]);
+                    if (date == null) {
+                        cell.setCellValue(value);
+                    } else {
+                        cell.setCellValue(date);
+                        cell.setCellStyle(getDateStyle(type));
+                    }
+                } else {
+                    cell.setCellValue(value);
+                }
+                result.cellCount++;
+            }
+            result.rowCount++;
+        }
+
+        private CellStyle getDateStyle(int patternIndex) {
+            if (dateStyles[patternIndex] == null) {
+                CellStyle style = workbook.createCellStyle();
+                style.setDataFormat(workbook.createDataFormat().getFormat(datePatterns.get(patternIndex)));
+                dateStyles[patternIndex] = style;
+            }
+            return dateStyles[patternIndex];
+        }
+    }
+
+    /**
+     * 转换的统计结果
+     */
+    @Getter
+    public static class ConvertResult {
+        /**
+         * 写入的记录数，不含表头
+         */
+        private long rowCount;
+
+        /**
+         * 写入的sheet数
+         */
+        private int sheetCount;
+
+        /**
+         * 写入的单元格数，含每个sheet的表头
+         */
+        private long cellCount;
+
+        /**
+         * 读取的CSV字符数
+         */
+        private long charCount;
+
+        /**
+         * 转换耗时，毫秒
+         */
+        private long elapsedMillis;
+
+        /**
+         * 每秒转换的记录数
+         *
+         * @return
+         */
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? rowCount * 1000.0 : rowCount * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "记录数：" + rowCount + "，sheet数：" + sheetCount + "，单元格数：" + cellCount + "，字符数：" + charCount
+                    + "，耗时：" + elapsedMillis + "ms，每秒记录数：" + String.format("%.0f", getRowsPerSecond());
+        }
+    }
+}
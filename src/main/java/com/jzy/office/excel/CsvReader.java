@@ -0,0 +1,172 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName CsvReader
+ * @Author JinZhiyun
+ * @Description 逐条读取CSV（RFC 4180）记录的读取器，自带缓冲区，每次只保存当前记录，可以读取任意大的CSV。
+ * <p>
+ * 双引号括起的字段中可以包含分隔符、换行，两个双引号表示一个双引号；记录之间可以用CRLF、LF或CR分隔；
+ * 开头的BOM会被忽略。空行读作只有一个空字段的记录
+ * @Date 2021/2/28 9:30
+ * @Version 1.0
+ **/
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Reader reader;
+
+    /**
+     * 字段分隔符
+     */
+    @Getter
+    private char delimiter;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * 已读取的记录数
+     */
+    @Getter
+    private long recordCount;
+
+    /**
+     * 已读取的字符数
+     */
+    @Getter
+    private long charCount;
+
+    private boolean started;
+
+    private List<String> fields = new ArrayList<>();
+
+    private StringBuilder field = new StringBuilder();
+
+    /**
+     * 构造以逗号分隔的CSV读取器
+     *
+     * @param reader 字符输入流
+     */
+    public CsvReader(Reader reader) {
+        this(reader, ',');
+    }
+
+    /**
+     * 构造CSV读取器
+     *
+     * @param reader    字符输入流
+     * @param delimiter 字段分隔符
+     */
+    public CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 记录的各个字段，已经读完时返回null
+     * @throws IOException
+     */
+    public String[] readRecord() throws IOException {
+        if (!started) {
+            started = true;
+            if (fill() && buffer[position] == '\uFEFF') {
+                position++;
+            }
+        }
+        if (position >= limit && !fill()) {
+            return null;
+        }
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        //当前字段是否以双引号开始
+        boolean inQuotes = false;
+        while (true) {
+            if (position >= limit && !fill()) {
+                //最后一条记录没有换行
+                break;
+            }
+            char c = buffer[position++];
+            if (inQuotes) {
+                if (c == '"') {
+                    if (position >= limit && !fill()) {
+                        inQuotes = false;
+                        continue;
+                    }
+                    if (buffer[position] == '"') {
+                        //两个双引号表示一个双引号
+                        field.append('"');
+                        position++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == delimiter) {
+                endField();
+                quoted = false;
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                //CRLF
+                if ((position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                break;
+            } else if (c == '"' && field.length() == 0 && !quoted) {
+                inQuotes = true;
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        endField();
+        recordCount++;
+        return fields.toArray(new String[0]);
+    }
+
+    private void endField() {
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    /**
+     * 读入更多字符
+     *
+     * @return 已经读完时返回false
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        charCount += n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,5 +1,6 @@
 package com.jzy.office.excel;
 
+import com.jzy.office.exception.ExcelColumnNotFoundException;
 import com.jzy.office.exception.ExcelTooManyRowsException;
 import com.jzy.office.exception.InvalidFileTypeException;
 import lombok.ToString;
@@ -88,4 +89,15 @@ public class DefaultExcel extends CommonExcel implements ExcelResettable, ExcelV
         return true;
     }
 
+    /**
+     * 按规则检查当前索引的sheet中的单元格，不合法的单元格作为错误收集，不抛出异常。参见{@link ExcelValidator}
+     *
+     * @param sheetIdx  sheet的索引
+     * @param validator 各列的规则
+     * @return 校验结果，包括不合法单元格的位置
+     * @throws ExcelColumnNotFoundException 规则指定名称的列未找到
+     */
+    public ExcelValidator.ValidationResult testCellValidityOfSheet(int sheetIdx, ExcelValidator validator) throws ExcelColumnNotFoundException {
+        return validator.validate(this, sheetIdx);
+    }
 }
@@ -0,0 +1,966 @@
+package com.jzy.office.excel;
+
+import com.jzy.office.StaxEventWriter;
+import com.jzy.office.exception.InvalidFileTypeException;
+import com.jzy.util.MyTimeUtils;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+
+/**
+ * @ClassName Excel2007StreamingPatcher
+ * @Author JinZhiyun
+ * @Description excel 2007（.xlsx）的流式单元格修改器，适用于很大的表格的“读一列关键字、查值、写回若干列”。
+ * {@link CommonExcel}需要先把整个工作簿解析到内存，百万行的表格只改一列也要占用大量内存。
+ * 该类用StAX边读边写指定sheet的xml：按行读取关键字列的值，交给修改函数得到该行要写入的值（列索引→值），
+ * 只改写这些单元格，其他单元格原样写出；压缩包中的其他条目按压缩后的原始字节直接复制。sheet的行不会全部载入内存。
+ * <p>
+ * 关键字的取值与{@link CommonExcel#read(int, int, int)}一致：字符串为文本，日期格式的数值按{@link #datePattern}格式化，
+ * 其他数值为保存的原始数值，布尔值为true或false，公式和错误值为空字符串（不调用修改函数）。
+ * 只有关键字是共享字符串的单元格才需要共享字符串表，先扫描一遍sheet找出这些字符串的序号，只加载这些字符串。
+ * 因此关键字列是文本（如文本格式的学号）时，占用的内存与关键字列中不同字符串的个数和总长度成正比，
+ * 百万行、关键字各不相同时约需几十MB；关键字是数值时内存占用与行数无关
+ * <p>
+ * 写入的值保存为内联字符串（inlineStr），不修改共享字符串表；被改写的单元格保留原来的样式。
+ * 公式单元格不会被改写（否则计算链会引用不存在的公式），计入{@link PatchResult#getSkippedFormulaCellCount()}。
+ * sheet的dimension不会更新，它只是给读取程序的提示
+ * @Date 2021/2/26 16:30
+ * @Version 1.0
+ **/
+public class Excel2007StreamingPatcher {
+    /**
+     * 日期格式，与{@link CommonExcel#getDatePattern()}的默认值相同
+     */
+    @Getter
+    @Setter
+    private String datePattern = MyTimeUtils.FORMAT_YMDHMS_BACKUP;
+
+    /**
+     * 包关系中主文档的关系类型后缀
+     */
+    private static final String OFFICE_DOCUMENT_REL_TYPE = "/officeDocument";
+
+    /**
+     * 工作簿关系中共享字符串表、sheet的关系类型后缀
+     */
+    private static final String SHARED_STRINGS_REL_TYPE = "/sharedStrings";
+
+    private static final String WORKSHEET_REL_TYPE = "/worksheet";
+
+    private static final String STYLES_REL_TYPE = "/styles";
+
+    /**
+     * 包关系部件名称
+     */
+    private static final String PACKAGE_RELS_PART_NAME = "_rels/.rels";
+
+    /**
+     * officeDocument命名空间下的关系属性，即sheet元素的r:id
+     */
+    private static final String R_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    /**
+     * 行、单元格元素的属性
+     */
+    private static final QName ATTRIBUTE_R = new QName("r");
+
+    private static final QName ATTRIBUTE_T = new QName("t");
+
+    private static final QName ATTRIBUTE_S = new QName("s");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final XMLEventFactory XML_EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        //单元格的值作为一个事件读出
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * 修改sheet中的单元格，结果保存到outputFile
+     *
+     * @param inputFile     输入文件路径
+     * @param outputFile    输出文件路径
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param keyColumn     关键字列，从 0 开始
+     * @param startRow      从第几行开始修改（含），之前的行（如表头）原样写出
+     * @param patchFunction 修改函数，输入关键字，返回该行要写入的值，键为列索引，值为null时清空该单元格的值。
+     *                      返回null或空集合时该行不修改
+     * @return 修改的统计结果
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public PatchResult patch(String inputFile, String outputFile, int sheetIndex, int keyColumn, int startRow,
+                             Function<String, Map<Integer, String>> patchFunction) throws IOException, InvalidFileTypeException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            return patch(new File(inputFile), out, sheetIndex, keyColumn, startRow, patchFunction);
+        }
+    }
+
+    /**
+     * 修改sheet中的单元格，结果写入输出流。该方法不会关闭输出流
+     *
+     * @param inputFile     输入文件对象
+     * @param outputStream  输出流
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param keyColumn     关键字列，从 0 开始
+     * @param startRow      从第几行开始修改（含），之前的行（如表头）原样写出
+     * @param patchFunction 修改函数，输入关键字，返回该行要写入的值，键为列索引，值为null时清空该单元格的值。
+     *                      返回null或空集合时该行不修改
+     * @return 修改的统计结果
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public PatchResult patch(File inputFile, OutputStream outputStream, int sheetIndex, int keyColumn, int startRow,
+                             Function<String, Map<Integer, String>> patchFunction) throws IOException, InvalidFileTypeException {
+        if (!ExcelVersionEnum.VERSION_2007.equals(ExcelVersionEnum.getVersion(inputFile.getAbsolutePath()))) {
+            throw new InvalidFileTypeException("错误的文件类型！" + Excel2007StreamingPatcher.class + "仅支持文件格式：" + ExcelVersionEnum.VERSION_2007.getSuffix());
+        }
+        PatchResult result = new PatchResult();
+        try (ZipFile zipFile = new ZipFile(inputFile);
+             ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(new CloseShieldOutputStream(outputStream))) {
+            List<String> workbookPartNames = findRelationshipTargets(zipFile, PACKAGE_RELS_PART_NAME, "", OFFICE_DOCUMENT_REL_TYPE);
+            if (workbookPartNames.isEmpty()) {
+                throw new IOException(inputFile + "中没有工作簿，不是有效的.xlsx文件");
+            }
+            String workbookPartName = workbookPartNames.get(0);
+            String workbookDir = workbookPartName.substring(0, workbookPartName.lastIndexOf('/') + 1);
+            String workbookRelsPartName = workbookDir + "_rels/" + workbookPartName.substring(workbookDir.length()) + ".rels";
+            String sheetPartName = findSheetPartName(zipFile, workbookPartName, workbookRelsPartName, sheetIndex);
+            List<String> sharedStringsPartNames = findRelationshipTargets(zipFile, workbookRelsPartName, workbookDir, SHARED_STRINGS_REL_TYPE);
+            List<String> stylesPartNames = findRelationshipTargets(zipFile, workbookRelsPartName, workbookDir, STYLES_REL_TYPE);
+            KeyFormat keyFormat = new KeyFormat(
+                    stylesPartNames.isEmpty() ? new BitSet() : readDateStyles(zipFile, stylesPartNames.get(0)),
+                    isDate1904(zipFile, workbookPartName), datePattern);
+
+            //关键字列中用到的共享字符串
+            Map<Integer, String> keySharedStrings = new HashMap<>();
+            if (!sharedStringsPartNames.isEmpty()) {
+                BitSet keySharedStringIndexes = scanKeySharedStringIndexes(zipFile, sheetPartName, keyColumn, startRow);
+                if (!keySharedStringIndexes.isEmpty()) {
+                    keySharedStrings = readSharedStrings(zipFile, sharedStringsPartNames.get(0), keySharedStringIndexes);
+                }
+            }
+
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (entry.getName().equals(sheetPartName)) {
+                    //重新写入修改后的sheet
+                    ZipArchiveEntry newEntry = new ZipArchiveEntry(entry.getName());
+                    newEntry.setMethod(ZipEntry.DEFLATED);
+                    newEntry.setTime(entry.getTime());
+                    zipOut.putArchiveEntry(newEntry);
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        patchSheet(in, new CloseShieldOutputStream(zipOut),
+                                new SheetPatcher(keyColumn, startRow, keySharedStrings, keyFormat, patchFunction, result));
+                    }
+                    zipOut.closeArchiveEntry();
+                } else {
+                    //按原始压缩字节复制
+                    zipOut.addRawArchiveEntry(entry, zipFile.getRawInputStream(entry));
+                }
+            }
+            zipOut.finish();
+        } catch (XMLStreamException e) {
+            throw new IOException("读取" + inputFile + "失败", e);
+        }
+        return result;
+    }
+
+    /**
+     * 读取关系部件中指定类型的关系的目标部件名称
+     *
+     * @param zipFile       压缩包
+     * @param relsPartName  关系部件名称
+     * @param sourceDir     关系源部件所在目录，用于解析相对路径
+     * @param typeSuffix    关系类型后缀
+     * @return 目标部件名称，可能为空
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static List<String> findRelationshipTargets(ZipFile zipFile, String relsPartName, String sourceDir, String typeSuffix)
+            throws IOException, XMLStreamException {
+        return readRelationships(zipFile, relsPartName, sourceDir, typeSuffix).get(typeSuffix);
+    }
+
+    /**
+     * 读取关系部件中的关系
+     *
+     * @param zipFile      压缩包
+     * @param relsPartName 关系部件名称
+     * @param sourceDir    关系源部件所在目录，用于解析相对路径
+     * @param typeSuffix   只读取该类型后缀的关系
+     * @return 键为关系类型后缀时值为所有目标部件名称（可能为空）；其他键为关系id，值为目标部件名称的单元素列表
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static Map<String, List<String>> readRelationships(ZipFile zipFile, String relsPartName, String sourceDir, String typeSuffix)
+            throws IOException, XMLStreamException {
+        Map<String, List<String>> relationships = new HashMap<>();
+        List<String> typedTargets = new ArrayList<>();
+        relationships.put(typeSuffix, typedTargets);
+        ZipArchiveEntry entry = zipFile.getEntry(relsPartName);
+        if (entry == null) {
+            throw new IOException("压缩包中不存在" + relsPartName + "，不是有效的.xlsx文件");
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())) {
+                        String type = reader.getAttributeValue(null, "Type");
+                        if (type != null && type.endsWith(typeSuffix) && !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+                            String target = resolvePartName(sourceDir, reader.getAttributeValue(null, "Target"));
+                            typedTargets.add(target);
+                            relationships.put(reader.getAttributeValue(null, "Id"), Collections.singletonList(target));
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return relationships;
+    }
+
+    /**
+     * 从工作簿中找到第sheetIndex+1个sheet的部件名称
+     *
+     * @param zipFile              压缩包
+     * @param workbookPartName     工作簿部件名称
+     * @param workbookRelsPartName 工作簿关系部件名称
+     * @param sheetIndex           指定 Sheet 页，从 0 开始
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static String findSheetPartName(ZipFile zipFile, String workbookPartName, String workbookRelsPartName, int sheetIndex)
+            throws IOException, XMLStreamException {
+        String workbookDir = workbookPartName.substring(0, workbookPartName.lastIndexOf('/') + 1);
+        Map<String, List<String>> sheetRelationships = readRelationships(zipFile, workbookRelsPartName, workbookDir, WORKSHEET_REL_TYPE);
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(workbookPartName))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                int index = 0;
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                        if (index++ == sheetIndex) {
+                            List<String> target = sheetRelationships.get(reader.getAttributeValue(R_NAMESPACE, "id"));
+                            if (target == null) {
+                                throw new IOException("第" + (sheetIndex + 1) + "个sheet不是工作表");
+                            }
+                            return target.get(0);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        throw new IllegalArgumentException("sheet索引越界：" + sheetIndex);
+    }
+
+    /**
+     * 工作簿是否使用1904日期系统
+     *
+     * @param zipFile          压缩包
+     * @param workbookPartName 工作簿部件名称
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static boolean isDate1904(ZipFile zipFile, String workbookPartName) throws IOException, XMLStreamException {
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(workbookPartName))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    if ("workbookPr".equals(reader.getLocalName())) {
+                        String date1904 = reader.getAttributeValue(null, "date1904");
+                        return "1".equals(date1904) || "true".equals(date1904);
+                    }
+                    if ("sheets".equals(reader.getLocalName())) {
+                        //workbookPr在sheets之前
+                        return false;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取样式表，找出数字格式为日期格式的单元格样式
+     *
+     * @param zipFile        压缩包
+     * @param stylesPartName 样式表部件名称
+     * @return 日期格式的单元格样式的序号
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static BitSet readDateStyles(ZipFile zipFile, String stylesPartName) throws IOException, XMLStreamException {
+        BitSet dateStyles = new BitSet();
+        Map<Integer, String> formats = new HashMap<>();
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(stylesPartName))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                boolean inCellXfs = false;
+                int styleIndex = 0;
+                while (reader.hasNext()) {
+                    int eventType = reader.next();
+                    if (eventType == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(reader.getLocalName())) {
+                        break;
+                    }
+                    if (eventType != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case "numFmt":
+                            //自定义数字格式在cellXfs之前
+                            formats.put(Integer.parseInt(reader.getAttributeValue(null, "numFmtId")),
+                                    reader.getAttributeValue(null, "formatCode"));
+                            break;
+                        case "cellXfs":
+                            inCellXfs = true;
+                            break;
+                        case "xf":
+                            if (inCellXfs) {
+                                String numFmtId = reader.getAttributeValue(null, "numFmtId");
+                                int formatIndex = numFmtId == null ? 0 : Integer.parseInt(numFmtId);
+                                String format = formats.containsKey(formatIndex) ? formats.get(formatIndex)
+                                        : BuiltinFormats.getBuiltinFormat(formatIndex);
+                                if (DateUtil.isADateFormat(formatIndex, format)) {
+                                    dateStyles.set(styleIndex);
+                                }
+                                styleIndex++;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return dateStyles;
+    }
+
+    /**
+     * 将关系的目标解析为部件名称（不以/开头）
+     *
+     * @param sourceDir 关系源部件所在目录
+     * @param target    关系的目标
+     * @return
+     */
+    private static String resolvePartName(String sourceDir, String target) {
+        String path = target.startsWith("/") ? target.substring(1) : sourceDir + target;
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : path.split("/")) {
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else if (!segment.isEmpty() && !".".equals(segment)) {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * 扫描sheet，找出关键字列中共享字符串的序号
+     *
+     * @param zipFile       压缩包
+     * @param sheetPartName sheet部件名称
+     * @param keyColumn     关键字列
+     * @param startRow      起始行
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static BitSet scanKeySharedStringIndexes(ZipFile zipFile, String sheetPartName, int keyColumn, int startRow)
+            throws IOException, XMLStreamException {
+        BitSet indexes = new BitSet();
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(sheetPartName))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                int rowIndex = -1;
+                int columnIndex = -1;
+                boolean keySharedString = false;
+                while (reader.hasNext()) {
+                    int eventType = reader.next();
+                    if (eventType != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case "row":
+                            rowIndex = parseRowIndex(reader.getAttributeValue(null, "r"), rowIndex);
+                            columnIndex = -1;
+                            break;
+                        case "c":
+                            columnIndex = parseColumnIndex(reader.getAttributeValue(null, "r"), columnIndex);
+                            keySharedString = rowIndex >= startRow && columnIndex == keyColumn
+                                    && "s".equals(reader.getAttributeValue(null, "t"));
+                            break;
+                        case "v":
+                            if (keySharedString) {
+                                indexes.set(Integer.parseInt(reader.getElementText().trim()));
+                                keySharedString = false;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 读取共享字符串表中指定序号的字符串
+     *
+     * @param zipFile               压缩包
+     * @param sharedStringsPartName 共享字符串表部件名称
+     * @param indexes               要读取的序号
+     * @return 序号→字符串
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static Map<Integer, String> readSharedStrings(ZipFile zipFile, String sharedStringsPartName, BitSet indexes)
+            throws IOException, XMLStreamException {
+        Map<Integer, String> strings = new HashMap<>(indexes.cardinality() * 4 / 3 + 1);
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(sharedStringsPartName))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                int index = -1;
+                int lastIndex = indexes.length() - 1;
+                boolean needed = false;
+                boolean inPhonetic = false;
+                StringBuilder text = new StringBuilder();
+                while (reader.hasNext() && index <= lastIndex) {
+                    int eventType = reader.next();
+                    if (eventType == XMLStreamConstants.START_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "si":
+                                index++;
+                                needed = indexes.get(index);
+                                text.setLength(0);
+                                break;
+                            case "rPh":
+                                //注音不属于字符串的文本
+                                inPhonetic = true;
+                                break;
+                            case "t":
+                                if (needed && !inPhonetic) {
+                                    text.append(reader.getElementText());
+                                }
+                                break;
+                            default:
+                                break;
+                        }
+                    } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                        if ("rPh".equals(reader.getLocalName())) {
+                            inPhonetic = false;
+                        } else if (needed && "si".equals(reader.getLocalName())) {
+                            strings.put(index, text.toString());
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * 解析行的r属性（从1开始的行号），没有时为上一行的下一行
+     *
+     * @param r            r属性
+     * @param lastRowIndex 上一行的索引
+     * @return 行索引，从0开始
+     */
+    private static int parseRowIndex(String r, int lastRowIndex) {
+        return r == null ? lastRowIndex + 1 : Integer.parseInt(r) - 1;
+    }
+
+    /**
+     * 解析单元格的r属性（如B12），没有时为同一行上一个单元格的下一列
+     *
+     * @param r               r属性
+     * @param lastColumnIndex 上一个单元格的列索引
+     * @return 列索引，从0开始
+     */
+    private static int parseColumnIndex(String r, int lastColumnIndex) {
+        if (r == null) {
+            return lastColumnIndex + 1;
+        }
+        int end = 0;
+        while (end < r.length() && Character.isLetter(r.charAt(end))) {
+            end++;
+        }
+        return CellReference.convertColStringToIndex(r.substring(0, end));
+    }
+
+    /**
+     * 流式修改sheet的xml
+     *
+     * @param in      sheet xml的输入流
+     * @param out     修改后sheet xml的输出流
+     * @param patcher sheet修改器
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static void patchSheet(InputStream in, OutputStream out, SheetPatcher patcher) throws IOException, XMLStreamException {
+        XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(in);
+        //XMLStreamWriter写不出standalone声明，直接写入声明
+        out.write(StaxEventWriter.XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+        XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        try {
+            patcher.patch(reader, new StaxEventWriter(writer));
+            writer.flush();
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+
+    /**
+     * 修改的统计结果
+     */
+    @Getter
+    public static class PatchResult {
+        /**
+         * 有关键字并调用了修改函数的行数
+         */
+        private long keyRowCount;
+
+        /**
+         * 被修改的行数
+         */
+        private long patchedRowCount;
+
+        /**
+         * 被写入的单元格数
+         */
+        private long patchedCellCount;
+
+        /**
+         * 因为是公式单元格而没有写入的单元格数
+         */
+        private long skippedFormulaCellCount;
+
+        @Override
+        public String toString() {
+            return "关键字行数：" + keyRowCount + "，修改行数：" + patchedRowCount + "，写入单元格数：" + patchedCellCount
+                    + "，跳过的公式单元格数：" + skippedFormulaCellCount;
+        }
+    }
+
+    /**
+     * 把关键字单元格的值转为与CommonExcel相同的字符串所需的信息
+     */
+    private static class KeyFormat {
+        /**
+         * 日期格式的单元格样式的序号
+         */
+        BitSet dateStyles;
+
+        boolean date1904;
+
+        String datePattern;
+
+        KeyFormat(BitSet dateStyles, boolean date1904, String datePattern) {
+            this.dateStyles = dateStyles;
+            this.date1904 = date1904;
+            this.datePattern = datePattern;
+        }
+
+        /**
+         * 数值单元格的值，日期格式的按日期格式化
+         *
+         * @param value 保存的数值
+         * @param style 单元格的s属性，可以为null
+         * @return
+         */
+        String numberValue(String value, Attribute style) {
+            if (style == null || !dateStyles.get(Integer.parseInt(style.getValue()))) {
+                return value;
+            }
+            double number;
+            try {
+                number = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return value;
+            }
+            if (!DateUtil.isValidExcelDate(number)) {
+                return value;
+            }
+            Date date = DateUtil.getJavaDate(number, date1904);
+            return datePattern == null ? date.toString() : MyTimeUtils.dateToString(date, datePattern);
+        }
+    }
+
+    /**
+     * 一行中的一个单元格在行事件缓存中的位置及其值
+     */
+    private static class CellSpan {
+        /**
+         * 开始元素和结束元素在缓存中的位置
+         */
+        int start;
+
+        int end;
+
+        int columnIndex;
+
+        /**
+         * c元素的t、s属性
+         */
+        String type;
+
+        Attribute style;
+
+        boolean formula;
+
+        /**
+         * v元素或内联字符串的文本
+         */
+        StringBuilder value;
+    }
+
+    /**
+     * sheet修改器。按行缓存事件，读到关键字后写出修改后的行
+     */
+    private static class SheetPatcher {
+        private int keyColumn;
+
+        private int startRow;
+
+        private Map<Integer, String> keySharedStrings;
+
+        private KeyFormat keyFormat;
+
+        private Function<String, Map<Integer, String>> patchFunction;
+
+        private PatchResult result;
+
+        /**
+         * 当前行的事件缓存及其中的单元格
+         */
+        private List<XMLEvent> buffer = new ArrayList<>();
+
+        private List<CellSpan> cells = new ArrayList<>();
+
+        private int rowIndex = -1;
+
+        SheetPatcher(int keyColumn, int startRow, Map<Integer, String> keySharedStrings, KeyFormat keyFormat,
+                     Function<String, Map<Integer, String>> patchFunction, PatchResult result) {
+            this.keyColumn = keyColumn;
+            this.startRow = startRow;
+            this.keySharedStrings = keySharedStrings;
+            this.keyFormat = keyFormat;
+            this.patchFunction = patchFunction;
+            this.result = result;
+        }
+
+        void patch(XMLEventReader reader, StaxEventWriter writer) throws XMLStreamException {
+            //在行中的深度，0表示不在行中
+            int depth = 0;
+            CellSpan cell = null;
+            //当前在v元素或内联字符串的t元素（不含注音）中
+            boolean inValue = false;
+            boolean inPhonetic = false;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (depth == 0) {
+                    if (event.isStartElement() && "row".equals(event.asStartElement().getName().getLocalPart())) {
+                        Attribute r = event.asStartElement().getAttributeByName(ATTRIBUTE_R);
+                        rowIndex = parseRowIndex(r == null ? null : r.getValue(), rowIndex);
+                        buffer.add(event);
+                        depth = 1;
+                    } else {
+                        writer.add(event);
+                    }
+                    continue;
+                }
+                buffer.add(event);
+                if (event.isStartElement()) {
+                    depth++;
+                    StartElement element = event.asStartElement();
+                    String localName = element.getName().getLocalPart();
+                    if (depth == 2 && "c".equals(localName)) {
+                        Attribute r = element.getAttributeByName(ATTRIBUTE_R);
+                        Attribute t = element.getAttributeByName(ATTRIBUTE_T);
+                        cell = new CellSpan();
+                        cell.start = buffer.size() - 1;
+                        cell.columnIndex = parseColumnIndex(r == null ? null : r.getValue(),
+                                cells.isEmpty() ? -1 : cells.get(cells.size() - 1).columnIndex);
+                        cell.type = t == null ? null : t.getValue();
+                        cell.style = element.getAttributeByName(ATTRIBUTE_S);
+                        cells.add(cell);
+                    } else if (cell != null) {
+                        if ("f".equals(localName)) {
+                            cell.formula = true;
+                        } else if ("rPh".equals(localName)) {
+                            inPhonetic = true;
+                        } else if ("v".equals(localName) || ("t".equals(localName) && !inPhonetic)) {
+                            inValue = true;
+                            if (cell.value == null) {
+                                cell.value = new StringBuilder();
+                            }
+                        }
+                    }
+                } else if (event.isEndElement()) {
+                    depth--;
+                    String localName = event.asEndElement().getName().getLocalPart();
+                    if (depth == 0) {
+                        //行结束
+                        writeRow(writer);
+                    } else if (depth == 1 && cell != null) {
+                        cell.end = buffer.size() - 1;
+                        cell = null;
+                    } else if ("rPh".equals(localName)) {
+                        inPhonetic = false;
+                    } else {
+                        inValue = false;
+                    }
+                } else if (inValue && event.isCharacters()) {
+                    cell.value.append(event.asCharacters().getData());
+                }
+            }
+        }
+
+        /**
+         * 写出缓存的一行，需要时修改其中的单元格
+         */
+        private void writeRow(StaxEventWriter writer) throws XMLStreamException {
+            Map<Integer, String> values = rowIndex >= startRow ? lookup() : null;
+            if (values == null || values.isEmpty()) {
+                for (XMLEvent event : buffer) {
+                    writer.add(event);
+                }
+            } else {
+                writePatchedRow(writer, new TreeMap<>(values));
+            }
+            buffer.clear();
+            cells.clear();
+        }
+
+        /**
+         * 读取当前行的关键字并调用修改函数
+         *
+         * @return 修改函数的结果，没有关键字时为null
+         */
+        private Map<Integer, String> lookup() {
+            String key = null;
+            for (CellSpan cell : cells) {
+                if (cell.columnIndex == keyColumn) {
+                    key = cellValue(cell);
+                    break;
+                }
+            }
+            if (key == null || key.isEmpty()) {
+                return null;
+            }
+            result.keyRowCount++;
+            return patchFunction.apply(key);
+        }
+
+        /**
+         * 单元格的值，与CommonExcel的读取结果一致
+         *
+         * @param cell 单元格
+         * @return
+         */
+        private String cellValue(CellSpan cell) {
+            if (cell.formula || "e".equals(cell.type)) {
+                //CommonExcel读取公式和错误值单元格时得到空字符串
+                return "";
+            }
+            if (cell.value == null) {
+                return null;
+            }
+            String value = cell.value.toString();
+            if ("s".equals(cell.type)) {
+                return keySharedStrings.get(Integer.parseInt(value.trim()));
+            }
+            if ("b".equals(cell.type)) {
+                return String.valueOf("1".equals(value));
+            }
+            if (cell.type == null || "n".equals(cell.type)) {
+                return keyFormat.numberValue(value.trim(), cell.style);
+            }
+            return value;
+        }
+
+        /**
+         * 写出修改后的行。目标列的单元格替换为新值，不存在的按列顺序插入
+         *
+         * @param writer 输出
+         * @param values 列索引→值，按列索引排序
+         */
+        private void writePatchedRow(StaxEventWriter writer, TreeMap<Integer, String> values) throws XMLStreamException {
+            StartElement row = buffer.get(0).asStartElement();
+            String prefix = row.getName().getPrefix();
+            String namespace = row.getName().getNamespaceURI();
+            boolean inserted = false;
+            for (Integer column : values.keySet()) {
+                if (!hasCell(column)) {
+                    inserted = true;
+                    break;
+                }
+            }
+            //spans是行中单元格列范围的提示，插入单元格后可能不准确，去掉
+            writer.add(inserted ? removeAttribute(row, "spans") : row);
+
+            Iterator<Map.Entry<Integer, String>> pending = values.entrySet().iterator();
+            Map.Entry<Integer, String> next = pending.hasNext() ? pending.next() : null;
+            boolean patched = false;
+            int position = 1;
+            for (CellSpan cell : cells) {
+                for (; position < cell.start; position++) {
+                    writer.add(buffer.get(position));
+                }
+                while (next != null && next.getKey() < cell.columnIndex) {
+                    writeCell(writer, prefix, namespace, next.getKey(), null, next.getValue());
+                    patched = true;
+                    next = pending.hasNext() ? pending.next() : null;
+                }
+                if (next != null && next.getKey() == cell.columnIndex) {
+                    if (cell.formula) {
+                        result.skippedFormulaCellCount++;
+                        writeEvents(writer, cell.start, cell.end);
+                    } else {
+                        writeCell(writer, prefix, namespace, cell.columnIndex, cell.style, next.getValue());
+                        patched = true;
+                    }
+                    next = pending.hasNext() ? pending.next() : null;
+                } else {
+                    writeEvents(writer, cell.start, cell.end);
+                }
+                position = cell.end + 1;
+            }
+            while (next != null) {
+                writeCell(writer, prefix, namespace, next.getKey(), null, next.getValue());
+                patched = true;
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            for (; position < buffer.size(); position++) {
+                writer.add(buffer.get(position));
+            }
+            if (patched) {
+                result.patchedRowCount++;
+            }
+        }
+
+        /**
+         * 当前行是否有指定列的单元格
+         *
+         * @param column 列索引
+         * @return
+         */
+        private boolean hasCell(int column) {
+            for (CellSpan cell : cells) {
+                if (cell.columnIndex == column) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeEvents(StaxEventWriter writer, int start, int end) throws XMLStreamException {
+            for (int i = start; i <= end; i++) {
+                writer.add(buffer.get(i));
+            }
+        }
+
+        /**
+         * 写出一个内联字符串单元格
+         *
+         * @param writer    输出
+         * @param prefix    sheet命名空间的前缀
+         * @param namespace sheet的命名空间
+         * @param column    列索引
+         * @param style     原单元格的样式属性，可以为null
+         * @param value     值，为null时写出没有值的单元格
+         */
+        private void writeCell(StaxEventWriter writer, String prefix, String namespace, int column, Attribute style,
+                               String value) throws XMLStreamException {
+            List<Attribute> attributes = new ArrayList<>(3);
+            attributes.add(XML_EVENT_FACTORY.createAttribute("r", CellReference.convertNumToColString(column) + (rowIndex + 1)));
+            if (style != null) {
+                attributes.add(style);
+            }
+            if (value != null) {
+                attributes.add(XML_EVENT_FACTORY.createAttribute("t", "inlineStr"));
+            }
+            writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespace, "c", attributes.iterator(), null));
+            if (value != null) {
+                writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespace, "is"));
+                //首尾的空白需要保留
+                boolean preserveSpace = !value.isEmpty()
+                        && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+                writer.add(XML_EVENT_FACTORY.createStartElement(prefix, namespace, "t"), preserveSpace);
+                if (!value.isEmpty()) {
+                    writer.writeCharacters(value);
+                }
+                writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespace, "t"));
+                writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespace, "is"));
+            }
+            writer.add(XML_EVENT_FACTORY.createEndElement(prefix, namespace, "c"));
+            result.patchedCellCount++;
+        }
+
+        /**
+         * 去掉开始元素中的一个属性
+         *
+         * @param element   开始元素
+         * @param localName 属性名
+         * @return
+         */
+        @SuppressWarnings("unchecked")
+        private static StartElement removeAttribute(StartElement element, String localName) {
+            List<Attribute> attributes = new ArrayList<>();
+            Iterator<Attribute> iterator = element.getAttributes();
+            while (iterator.hasNext()) {
+                Attribute attribute = iterator.next();
+                if (!localName.equals(attribute.getName().getLocalPart())) {
+                    attributes.add(attribute);
+                }
+            }
+            QName name = element.getName();
+            return XML_EVENT_FACTORY.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+                    attributes.iterator(), element.getNamespaces());
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @ClassName ExcelColumnProfiler
+ * @Author JinZhiyun
+ * @Description 导入前统计sheet每一列的概况：空值数、不同值个数、数值最小最大值、字符串最小最大值、数值比例、最大长度等。
+ * 遍历一次sheet即可得到所有列的统计，不需要为每项统计各读一遍。
+ * <p>
+ * 每列先记住出现过的不同值，不同值个数和是否都不相同（{@link ColumnProfile#isUnique()}）都是精确的；
+ * 不同值超过{@link #maxExactDistinctCount}个后丢弃这些值，改用{@link HyperLogLog}估计，之后每列只占用几KB内存。
+ * 因此每列占用的内存不超过maxExactDistinctCount个值，与行数无关
+ * @Date 2021/3/1 14:30
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelColumnProfiler {
+    /**
+     * 表头所在行，小于0时没有表头。统计从表头的下一行开始
+     */
+    private int headerRowIndex;
+
+    /**
+     * 估计不同值个数的精度，4到16，越大越准确，每列占用2^precision字节
+     */
+    private int precision = 12;
+
+    /**
+     * 每列最多记住的不同值个数，超过后改为估计。小于等于0时始终估计
+     */
+    private int maxExactDistinctCount = 10000;
+
+    /**
+     * 统计sheet每一列的概况
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @return 各列的统计
+     */
+    public SheetProfile profile(AbstractExcel<?> excel, int sheetIndex) {
+        SheetProfile profile = new SheetProfile();
+        List<String> header = headerRowIndex < 0 ? Collections.emptyList() : excel.readRow(sheetIndex, headerRowIndex);
+        List<DistinctCounter> counters = new ArrayList<>();
+        addColumns(profile, counters, header, header.size());
+        excel.forEachRow(sheetIndex, headerRowIndex + 1, row -> {
+            profile.rowCount++;
+            int columnCount = row.getColumnCount();
+            for (int c = 0; c < columnCount; c++) {
+                String value = row.read(c);
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                addColumns(profile, counters, header, c + 1);
+                profile.columns.get(c).accept(value);
+                counters.get(c).add(value);
+            }
+        });
+        for (int c = 0; c < profile.columns.size(); c++) {
+            profile.columns.get(c).rowCount = profile.rowCount;
+            counters.get(c).finish(profile.columns.get(c));
+        }
+        return profile;
+    }
+
+    /**
+     * 补齐前columnCount列的统计
+     */
+    private void addColumns(SheetProfile profile, List<DistinctCounter> counters, List<String> header, int columnCount) {
+        while (profile.columns.size() < columnCount) {
+            int index = profile.columns.size();
+            profile.columns.add(new ColumnProfile(index, index < header.size() ? header.get(index) : null));
+            counters.add(new DistinctCounter(precision, maxExactDistinctCount));
+        }
+    }
+
+    /**
+     * 一列的不同值计数：不同值不超过上限时记住这些值精确计数，超过后只用HyperLogLog估计
+     */
+    private static class DistinctCounter {
+        private HyperLogLog sketch;
+
+        private int maxExactCount;
+
+        /**
+         * 出现过的不同值，超过上限后为null
+         */
+        private Set<String> values = new HashSet<>();
+
+        /**
+         * 是否遇到过重复值
+         */
+        private boolean duplicated;
+
+        DistinctCounter(int precision, int maxExactCount) {
+            this.sketch = new HyperLogLog(precision);
+            this.maxExactCount = maxExactCount;
+            if (maxExactCount <= 0) {
+                values = null;
+            }
+        }
+
+        void add(String value) {
+            sketch.add(value);
+            if (values == null) {
+                return;
+            }
+            if (!values.add(value)) {
+                duplicated = true;
+            } else if (values.size() > maxExactCount) {
+                values = null;
+            }
+        }
+
+        /**
+         * 写入列的不同值个数和是否都不相同
+         *
+         * @param column 列的统计，非空值个数已经确定
+         */
+        void finish(ColumnProfile column) {
+            column.exact = values != null;
+            if (column.exact) {
+                column.distinctCount = values.size();
+                column.unique = !duplicated;
+                return;
+            }
+            //遇到过重复值时不同值个数至少比非空值个数少1
+            column.distinctCount = Math.min(sketch.estimate(), column.nonNullCount - (duplicated ? 1 : 0));
+            column.unique = !duplicated && column.distinctCount >= column.nonNullCount * (1 - 3 * sketch.standardError());
+        }
+    }
+
+    /**
+     * sheet的统计
+     */
+    @Getter
+    public static class SheetProfile {
+        /**
+         * 统计的行数
+         */
+        private long rowCount;
+
+        /**
+         * 各列的统计，按列索引排列，到表头或数据中最后一个有值的列为止
+         */
+        private List<ColumnProfile> columns = new ArrayList<>();
+
+        /**
+         * 按表头中的列名查找列的统计
+         *
+         * @param name 列名
+         * @return 没有该列时返回null
+         */
+        public ColumnProfile getColumn(String name) {
+            for (ColumnProfile column : columns) {
+                if (name.equals(column.name)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("行数：").append(rowCount);
+            for (ColumnProfile column : columns) {
+                sb.append(System.lineSeparator()).append(column);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 一列的统计
+     */
+    @Getter
+    public static class ColumnProfile {
+        /**
+         * 列索引
+         */
+        private int columnIndex;
+
+        /**
+         * 表头中的列名，没有表头时为null
+         */
+        private String name;
+
+        /**
+         * 统计的行数
+         */
+        private long rowCount;
+
+        /**
+         * 非空值的个数
+         */
+        private long nonNullCount;
+
+        /**
+         * 不同的非空值个数，{@link #exact}为false时是估计值
+         */
+        private long distinctCount;
+
+        /**
+         * 非空值是否都不相同
+         */
+        private boolean unique;
+
+        /**
+         * 不同值个数和是否都不相同是否为精确值。不同值超过{@link ExcelColumnProfiler#maxExactDistinctCount}个时为false
+         */
+        private boolean exact;
+
+        /**
+         * 数值的个数
+         */
+        private long numericCount;
+
+        /**
+         * 整数的个数
+         */
+        private long integerCount;
+
+        /**
+         * 数值的最小值、最大值，没有数值时为NaN
+         */
+        private double minNumber = Double.NaN;
+
+        private double maxNumber = Double.NaN;
+
+        /**
+         * 按字符串比较的最小值、最大值，没有非空值时为null
+         */
+        private String minValue;
+
+        private String maxValue;
+
+        /**
+         * 非空值的最小长度、最大长度
+         */
+        private int minLength;
+
+        private int maxLength;
+
+        ColumnProfile(int columnIndex, String name) {
+            this.columnIndex = columnIndex;
+            this.name = name;
+        }
+
+        void accept(String value) {
+            if (nonNullCount++ == 0) {
+                minValue = maxValue = value;
+                minLength = maxLength = value.length();
+            } else {
+                if (value.compareTo(minValue) < 0) {
+                    minValue = value;
+                } else if (value.compareTo(maxValue) > 0) {
+                    maxValue = value;
+                }
+                minLength = Math.min(minLength, value.length());
+                maxLength = Math.max(maxLength, value.length());
+            }
+            double number = CellValues.parseNumber(value);
+            if (!Double.isNaN(number)) {
+                if (numericCount++ == 0) {
+                    minNumber = maxNumber = number;
+                } else {
+                    minNumber = Math.min(minNumber, number);
+                    maxNumber = Math.max(maxNumber, number);
+                }
+                if (number == Math.rint(number) && !Double.isInfinite(number)) {
+                    integerCount++;
+                }
+            }
+        }
+
+        /**
+         * 空值（单元格为空或值为空字符串）的个数
+         *
+         * @return
+         */
+        public long getNullCount() {
+            return rowCount - nonNullCount;
+        }
+
+        /**
+         * 非空值中数值所占的比例，没有非空值时为0
+         *
+         * @return
+         */
+        public double getNumericRatio() {
+            return nonNullCount == 0 ? 0 : (double) numericCount / nonNullCount;
+        }
+
+        /**
+         * 非空值是否全为数值
+         *
+         * @return
+         */
+        public boolean isNumeric() {
+            return nonNullCount > 0 && numericCount == nonNullCount;
+        }
+
+        /**
+         * 非空值是否都不相同，可以作为关键字。{@link #isExact()}为false时按估计值判断：没有发现重复值，
+         * 且估计的不同值个数不少于非空值个数减去3倍标准误差（默认精度下约5%），因此可能把少量重复的列判断为不重复
+         *
+         * @return
+         */
+        public boolean isUnique() {
+            return nonNullCount > 0 && unique;
+        }
+
+        @Override
+        public String toString() {
+            return "第" + (columnIndex + 1) + "列" + (name == null ? "" : "（" + name + "）") + "：空值数：" + getNullCount()
+                    + "，不同值个数：" + distinctCount + (exact ? "" : "（估计）") + "，数值比例：" + String.format("%.2f", getNumericRatio())
+                    + "，数值范围：" + minNumber + "~" + maxNumber + "，值范围：" + minValue + "~" + maxValue
+                    + "，长度：" + minLength + "~" + maxLength;
+        }
+    }
+}
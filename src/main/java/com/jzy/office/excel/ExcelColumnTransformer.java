@@ -0,0 +1,124 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * @ClassName ExcelColumnTransformer
+ * @Author JinZhiyun
+ * @Description 对sheet的一列逐个单元格执行转换（如{@link com.jzy.util.MyStringUtils#getClassroomParsedSubString(String)}、
+ * {@link com.jzy.util.MyStringUtils#getParsedTime(String)}），结果放入按行排列的数组。
+ * <p>
+ * 教室、时间段这类列的值大量重复，转换时用一个容量有限的LRU缓存记住最近的不同值及其结果，重复的值不再重新计算，
+ * 内存占用与行数无关。开启{@link #parallel}时先顺序读出整列，再按行块并行转换，每个行块各用一个缓存，不需要加锁
+ * @Date 2021/3/2 16:40
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelColumnTransformer {
+    /**
+     * 缓存的不同值的个数，小于等于0时不缓存
+     */
+    private int cacheSize = 256;
+
+    /**
+     * 是否按行块并行转换，转换函数需要是线程安全的
+     */
+    private boolean parallel;
+
+    /**
+     * 并行转换时每个行块的行数
+     */
+    private int blockSize = 4096;
+
+    /**
+     * 转换sheet中的一列，从起始行到最后一行
+     *
+     * @param excel         excel对象
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param columnIndex   列索引，从0开始
+     * @param function      转换函数，输入非空的单元格值。对相同的值应返回相同的结果
+     * @param generator     创建结果数组，如String[]::new
+     * @param <T>           结果的类型
+     * @return 结果数组，下标为行索引减去起始行；单元格为空（null或空字符串）或行为空时为null
+     */
+    public <T> T[] transform(AbstractExcel<?> excel, int sheetIndex, int startRowIndex, int columnIndex,
+                             Function<? super String, ? extends T> function, IntFunction<T[]> generator) {
+        T[] results = generator.apply(Math.max(excel.getRowCount(sheetIndex) - startRowIndex, 0));
+        if (!parallel) {
+            MemoCache cache = new MemoCache(cacheSize);
+            excel.forEachRow(sheetIndex, startRowIndex, row -> {
+                if (!row.isNullRow()) {
+                    results[row.getRowIndex() - startRowIndex] = cache.apply(row.read(columnIndex), function);
+                }
+            });
+            return results;
+        }
+        //POI的对象不是线程安全的，先顺序读出整列
+        String[] values = new String[results.length];
+        excel.forEachRow(sheetIndex, startRowIndex, row -> {
+            if (!row.isNullRow()) {
+                values[row.getRowIndex() - startRowIndex] = row.read(columnIndex);
+            }
+        });
+        int size = Math.max(blockSize, 1);
+        int blockCount = (values.length + size - 1) / size;
+        IntStream.range(0, blockCount).parallel().forEach(block -> {
+            MemoCache cache = new MemoCache(cacheSize);
+            int end = Math.min(values.length, (block + 1) * size);
+            for (int i = block * size; i < end; i++) {
+                results[i] = cache.apply(values[i], function);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * 记住最近使用的不同值及其结果的LRU缓存，只在一个线程中使用
+     */
+    private static class MemoCache extends LinkedHashMap<String, Object> {
+        private static final long serialVersionUID = 2384190557271601763L;
+
+        /**
+         * 转换结果为null时缓存的值
+         */
+        private static final Object NULL = new Object();
+
+        private int capacity;
+
+        MemoCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T apply(String value, Function<? super String, ? extends T> function) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            if (capacity <= 0) {
+                return function.apply(value);
+            }
+            Object result = get(value);
+            if (result == null) {
+                T computed = function.apply(value);
+                put(value, computed == null ? NULL : computed);
+                return computed;
+            }
+            return result == NULL ? null : (T) result;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.jzy.office.excel;
+
+import java.util.Date;
+
+/**
+ * @author JinZhiyun
+ * @version 1.0
+ * @EnumName ExcelColumnTypeEnum
+ * @description excel列的数据类型枚举类，用于{@link ExcelSchema}
+ * @date 2021/3/1 16:00
+ **/
+public enum ExcelColumnTypeEnum {
+    /**
+     * 文本
+     */
+    STRING(String.class),
+
+    /**
+     * 整数，解码为Long。以0开头的编号不是整数
+     */
+    INTEGER(Long.class),
+
+    /**
+     * 小数，解码为Double
+     */
+    DECIMAL(Double.class),
+
+    /**
+     * 布尔值（是/否、true/false），解码为Boolean
+     */
+    BOOLEAN(Boolean.class),
+
+    /**
+     * 日期，按列的日期格式解码为Date
+     */
+    DATE(Date.class);
+
+    private Class<?> javaType;
+
+    ExcelColumnTypeEnum(Class<?> javaType) {
+        this.javaType = javaType;
+    }
+
+    /**
+     * 解码得到的值的类型
+     *
+     * @return
+     */
+    public Class<?> getJavaType() {
+        return javaType;
+    }
+}
@@ -0,0 +1,193 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @ClassName ExcelCsvExporter
+ * @Author JinZhiyun
+ * @Description 将excel的sheet导出为CSV（RFC 4180）。通过{@link AbstractExcel#forEachRow(int, int, int, ExcelRowHandler)}逐行读取，
+ * 单元格值直接写入输出，不构造List&lt;List&lt;String&gt;&gt;等中间结果，导出本身占用的内存与行数无关。
+ * <p>
+ * 含有分隔符、双引号、回车或换行的值用双引号括起，其中的双引号写成两个双引号；为null的单元格导出为空字段。
+ * 默认每行导出到该行的最后一列，为空的行导出为空行；设置{@link #columnCount}后每行都导出相同的列数
+ * @Date 2021/2/27 16:40
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelCsvExporter {
+    /**
+     * 写入缓冲区的字符数
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 字段分隔符，默认为逗号
+     */
+    private char delimiter = ',';
+
+    /**
+     * 记录分隔符，RFC 4180规定为CRLF
+     */
+    private String lineSeparator = "\r\n";
+
+    /**
+     * 写入文件或字节通道时使用的字符集，默认UTF-8
+     */
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * 写入文件或字节通道时是否在开头写入BOM。用Excel打开UTF-8编码的CSV时需要BOM才能正确识别中文
+     */
+    private boolean writeBom;
+
+    /**
+     * 每行导出的列数，小于等于0时每行导出到该行的最后一列
+     */
+    private int columnCount;
+
+    /**
+     * 导出sheet到文件
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @param outputFile 输出文件路径
+     * @return 导出的行数
+     * @throws IOException
+     */
+    public long export(AbstractExcel<?> excel, int sheetIndex, String outputFile) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(outputFile), charset)) {
+            writeBom(writer);
+            return export(excel, sheetIndex, 0, Integer.MAX_VALUE, writer);
+        }
+    }
+
+    /**
+     * 导出sheet到字节通道。该方法不会关闭通道
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @param channel    字节通道
+     * @return 导出的行数
+     * @throws IOException
+     */
+    public long export(AbstractExcel<?> excel, int sheetIndex, WritableByteChannel channel) throws IOException {
+        //Channels.newWriter得到的Writer自带缓冲区，flush时写入通道
+        Writer writer = Channels.newWriter(channel, charset.newEncoder(), BUFFER_SIZE);
+        writeBom(writer);
+        return export(excel, sheetIndex, 0, Integer.MAX_VALUE, writer);
+    }
+
+    /**
+     * 导出sheet到字符输出流。该方法不会关闭输出流
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @param writer     字符输出流
+     * @return 导出的行数
+     * @throws IOException
+     */
+    public long export(AbstractExcel<?> excel, int sheetIndex, Writer writer) throws IOException {
+        return export(excel, sheetIndex, 0, Integer.MAX_VALUE, writer);
+    }
+
+    /**
+     * 导出sheet中从startRowIndex行到endRowIndex行到字符输出流。该方法不会关闭输出流，但会在结束时flush
+     *
+     * @param excel         excel对象
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param endRowIndex   结束行（含）
+     * @param writer        字符输出流
+     * @return 导出的行数
+     * @throws IOException
+     */
+    public long export(AbstractExcel<?> excel, int sheetIndex, int startRowIndex, int endRowIndex, Writer writer) throws IOException {
+        Writer out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, BUFFER_SIZE);
+        long[] rowCount = new long[1];
+        try {
+            excel.forEachRow(sheetIndex, startRowIndex, endRowIndex, row -> {
+                try {
+                    writeRow(row, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rowCount[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return rowCount[0];
+    }
+
+    /**
+     * 写出一行记录
+     *
+     * @param row 当前行
+     * @param out 输出
+     * @throws IOException
+     */
+    private void writeRow(ExcelRow row, Writer out) throws IOException {
+        int count = columnCount > 0 ? columnCount : row.getColumnCount();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.write(delimiter);
+            }
+            writeField(row.read(i), out);
+        }
+        out.write(lineSeparator);
+    }
+
+    /**
+     * 写出一个字段，需要时用双引号括起
+     *
+     * @param value 字段值
+     * @param out   输出
+     * @throws IOException
+     */
+    private void writeField(String value, Writer out) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!needsQuote(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                //双引号写成两个双引号
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private boolean needsQuote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeBom(Writer writer) throws IOException {
+        if (writeBom) {
+            writer.write('\uFEFF');
+        }
+    }
+}
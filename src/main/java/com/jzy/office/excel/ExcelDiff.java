@@ -0,0 +1,311 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @ClassName ExcelDiff
+ * @Author JinZhiyun
+ * @Description 比较两个sheet（如昨天和今天上传的表格），找出新增、删除、修改的行以及修改的单元格。
+ * <p>
+ * 先逐行遍历旧sheet，只记录每行的64位指纹（以及关键字的指纹），再逐行遍历新sheet与之匹配，
+ * 不把两个sheet读成List&lt;List&lt;String&gt;&gt;，比较两个几十万行的表格也只需要几MB的额外内存。
+ * 指纹只用来找出候选的旧行，匹配前回到旧sheet中读取候选行确认：按内容匹配时逐个比较单元格，按关键字匹配时比较关键字。
+ * 按关键字匹配后，内容指纹相同的行视为没有修改（64位指纹碰撞的概率可以忽略），不同的行再逐个比较单元格。
+ * <p>
+ * 设置关键字列（如学号）时按关键字匹配行，关键字相同而内容不同的行为修改的行；关键字为空的行不参与比较。
+ * 不设置关键字列时按内容匹配行，只有新增和删除的行。两种方式下同一关键字或同样内容的多行都按顺序一一匹配。
+ * 为null与为空字符串的单元格视为相同，行末尾的空单元格不影响比较
+ * @Date 2021/2/28 14:50
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelDiff {
+    /**
+     * 从第几行开始比较（含），之前的行（如表头）不比较
+     */
+    private int startRowIndex;
+
+    /**
+     * 关键字列，从0开始，小于0时按内容匹配行
+     */
+    private int keyColumnIndex = -1;
+
+    /**
+     * 是否去掉值首尾的空白后再比较
+     */
+    private boolean trimValues;
+
+    public ExcelDiff() {
+    }
+
+    /**
+     * @param startRowIndex  从第几行开始比较（含）
+     * @param keyColumnIndex 关键字列，从0开始，小于0时按内容匹配行
+     */
+    public ExcelDiff(int startRowIndex, int keyColumnIndex) {
+        this.startRowIndex = startRowIndex;
+        this.keyColumnIndex = keyColumnIndex;
+    }
+
+    /**
+     * 比较两个sheet
+     *
+     * @param oldExcel      旧的excel对象
+     * @param oldSheetIndex 旧的sheet，从 0 开始
+     * @param newExcel      新的excel对象
+     * @param newSheetIndex 新的sheet，从 0 开始
+     * @return 比较结果
+     */
+    public DiffResult diff(AbstractExcel<?> oldExcel, int oldSheetIndex, AbstractExcel<?> newExcel, int newSheetIndex) {
+        boolean keyed = keyColumnIndex >= 0;
+        DiffResult result = new DiffResult();
+        int oldRowCount = Math.max(oldExcel.getRowCount(oldSheetIndex) - startRowIndex, 0);
+        //旧sheet每行的内容指纹，按关键字匹配时用来判断是否修改
+        long[] oldFingerprints = new long[oldRowCount];
+        //旧sheet中参与比较的行
+        BitSet oldRows = new BitSet(oldRowCount);
+        FingerprintTable table = new FingerprintTable(oldRowCount);
+        oldExcel.forEachRow(oldSheetIndex, startRowIndex, row -> {
+            int offset = row.getRowIndex() - startRowIndex;
+            if (offset >= oldRowCount) {
+                return;
+            }
+            if (keyed) {
+                String key = normalize(row.read(keyColumnIndex));
+                if (key.isEmpty()) {
+                    return;
+                }
+                oldFingerprints[offset] = fingerprint(row);
+                table.add(FingerprintTable.hash(key), row.getRowIndex());
+            } else {
+                long fingerprint = fingerprint(row);
+                if (fingerprint == 0) {
+                    return;
+                }
+                table.add(fingerprint, row.getRowIndex());
+            }
+            oldRows.set(offset);
+        });
+
+        //已经与新sheet中的行匹配的旧行
+        BitSet matched = new BitSet(oldRowCount);
+        newExcel.forEachRow(newSheetIndex, startRowIndex, row -> {
+            long fingerprint = fingerprint(row);
+            if (!keyed) {
+                if (fingerprint == 0) {
+                    return;
+                }
+                int oldRow = table.find(fingerprint, r -> !matched.get(r - startRowIndex)
+                        && sameRow(oldExcel, oldSheetIndex, r, row));
+                if (oldRow < 0) {
+                    result.addedRows.add(row.getRowIndex());
+                } else {
+                    matched.set(oldRow - startRowIndex);
+                    result.unchangedRowCount++;
+                }
+                return;
+            }
+            String key = normalize(row.read(keyColumnIndex));
+            if (key.isEmpty()) {
+                if (fingerprint != 0) {
+                    result.skippedRowCount++;
+                }
+                return;
+            }
+            int oldRow = table.find(FingerprintTable.hash(key), r -> !matched.get(r - startRowIndex)
+                    && key.equals(normalize(oldExcel.read(oldSheetIndex, r, keyColumnIndex))));
+            if (oldRow < 0) {
+                result.addedRows.add(row.getRowIndex());
+                return;
+            }
+            matched.set(oldRow - startRowIndex);
+            if (oldFingerprints[oldRow - startRowIndex] == fingerprint) {
+                result.unchangedRowCount++;
+                return;
+            }
+            RowChange change = new RowChange(key, oldRow, row.getRowIndex());
+            int columnCount = Math.max(oldExcel.getColumnCount(oldSheetIndex, oldRow), row.getColumnCount());
+            for (int c = 0; c < columnCount; c++) {
+                String oldValue = oldExcel.read(oldSheetIndex, oldRow, c);
+                String newValue = row.read(c);
+                if (!normalize(oldValue).equals(normalize(newValue))) {
+                    change.cellChanges.add(new CellChange(c, oldValue, newValue));
+                }
+            }
+            result.changedRows.add(change);
+        });
+
+        for (int offset = oldRows.nextSetBit(0); offset >= 0; offset = oldRows.nextSetBit(offset + 1)) {
+            if (!matched.get(offset)) {
+                result.removedRows.add(offset + startRowIndex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 旧sheet中的一行与新sheet中的当前行的内容是否相同
+     *
+     * @param oldExcel      旧的excel对象
+     * @param oldSheetIndex 旧的sheet
+     * @param oldRow        旧sheet中的行索引
+     * @param row           新sheet中的当前行
+     * @return
+     */
+    private boolean sameRow(AbstractExcel<?> oldExcel, int oldSheetIndex, int oldRow, ExcelRow row) {
+        int columnCount = Math.max(oldExcel.getColumnCount(oldSheetIndex, oldRow), row.getColumnCount());
+        for (int c = 0; c < columnCount; c++) {
+            if (!normalize(oldExcel.read(oldSheetIndex, oldRow, c)).equals(normalize(row.read(c)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 行的内容指纹，空行为0
+     *
+     * @param row 当前行
+     * @return
+     */
+    private long fingerprint(ExcelRow row) {
+        long fingerprint = 0;
+        int columnCount = row.getColumnCount();
+        for (int c = 0; c < columnCount; c++) {
+            String value = normalize(row.read(c));
+            if (!value.isEmpty()) {
+                //并入列索引，值相同但位置不同的行指纹不同
+                fingerprint = FingerprintTable.combine(fingerprint, FingerprintTable.hash(value) + c);
+            }
+        }
+        return fingerprint;
+    }
+
+    private String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return trimValues ? value.trim() : value;
+    }
+
+    /**
+     * 比较结果
+     */
+    @Getter
+    public static class DiffResult {
+        /**
+         * 新增的行，为新sheet中的行索引
+         */
+        private List<Integer> addedRows = new ArrayList<>();
+
+        /**
+         * 删除的行，为旧sheet中的行索引
+         */
+        private List<Integer> removedRows = new ArrayList<>();
+
+        /**
+         * 修改的行，只有按关键字匹配时才有
+         */
+        private List<RowChange> changedRows = new ArrayList<>();
+
+        /**
+         * 没有变化的行数
+         */
+        private long unchangedRowCount;
+
+        /**
+         * 按关键字匹配时，新sheet中关键字为空而跳过的非空行数
+         */
+        private long skippedRowCount;
+
+        /**
+         * 两个sheet是否没有差异
+         *
+         * @return
+         */
+        public boolean isIdentical() {
+            return addedRows.isEmpty() && removedRows.isEmpty() && changedRows.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "新增行数：" + addedRows.size() + "，删除行数：" + removedRows.size() + "，修改行数：" + changedRows.size()
+                    + "，未变化行数：" + unchangedRowCount + "，跳过行数：" + skippedRowCount;
+        }
+    }
+
+    /**
+     * 修改的行
+     */
+    @Getter
+    public static class RowChange {
+        /**
+         * 关键字
+         */
+        private String key;
+
+        /**
+         * 旧sheet中的行索引
+         */
+        private int oldRowIndex;
+
+        /**
+         * 新sheet中的行索引
+         */
+        private int newRowIndex;
+
+        /**
+         * 修改的单元格
+         */
+        private List<CellChange> cellChanges = new ArrayList<>();
+
+        RowChange(String key, int oldRowIndex, int newRowIndex) {
+            this.key = key;
+            this.oldRowIndex = oldRowIndex;
+            this.newRowIndex = newRowIndex;
+        }
+
+        @Override
+        public String toString() {
+            return key + "（第" + (oldRowIndex + 1) + "行→第" + (newRowIndex + 1) + "行）：" + cellChanges;
+        }
+    }
+
+    /**
+     * 修改的单元格
+     */
+    @Getter
+    public static class CellChange {
+        /**
+         * 列索引
+         */
+        private int columnIndex;
+
+        /**
+         * 旧值
+         */
+        private String oldValue;
+
+        /**
+         * 新值
+         */
+        private String newValue;
+
+        CellChange(int columnIndex, String oldValue, String newValue) {
+            this.columnIndex = columnIndex;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        @Override
+        public String toString() {
+            return "第" + (columnIndex + 1) + "列：" + oldValue + "→" + newValue;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.*;
+
+/**
+ * @ClassName ExcelDuplicateDetector
+ * @Author JinZhiyun
+ * @Description 查找sheet中关键字（一列或多列，如学号）重复的行，遍历一次sheet即可找出所有重复的组，并可以一次删除所有重复行。
+ * <p>
+ * 每个关键字只在开放寻址表中记录64位指纹和第一次出现的行，不保存关键字字符串；指纹相同时回到该行读取关键字确认，
+ * 不会因为指纹碰撞误删。比较前按设置对值做规范化：默认去掉首尾空白，可以忽略大小写；为null与为空字符串视为相同
+ * @Date 2021/2/28 16:10
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelDuplicateDetector {
+    /**
+     * 空值的哈希
+     */
+    private static final long EMPTY_HASH = FingerprintTable.FNV_OFFSET_BASIS;
+
+    /**
+     * 是否去掉值首尾的空白后再比较
+     */
+    private boolean trimValues = true;
+
+    /**
+     * 是否忽略大小写
+     */
+    private boolean ignoreCase;
+
+    /**
+     * 是否跳过关键字各列全为空的行
+     */
+    private boolean ignoreEmptyKeys = true;
+
+    /**
+     * 查找关键字重复的行
+     *
+     * @param excel            excel对象
+     * @param sheetIndex       指定 Sheet 页，从 0 开始
+     * @param startRowIndex    起始行（含），之前的行（如表头）不参与查找
+     * @param keyColumnIndexes 关键字列，从0开始
+     * @return 重复行的报告
+     */
+    public DuplicateReport find(AbstractExcel<?> excel, int sheetIndex, int startRowIndex, int... keyColumnIndexes) {
+        if (keyColumnIndexes.length == 0) {
+            throw new IllegalArgumentException("至少需要一个关键字列");
+        }
+        DuplicateReport report = new DuplicateReport();
+        FingerprintTable firstRows = new FingerprintTable(Math.max(excel.getRowCount(sheetIndex) - startRowIndex, 0));
+        //第一行→重复的组，只有出现重复的关键字才有
+        Map<Integer, DuplicateGroup> groups = new HashMap<>();
+        String[] key = new String[keyColumnIndexes.length];
+        excel.forEachRow(sheetIndex, startRowIndex, row -> {
+            long fingerprint = 0;
+            boolean empty = true;
+            for (int i = 0; i < keyColumnIndexes.length; i++) {
+                key[i] = row.read(keyColumnIndexes[i]);
+                long hash = hash(key[i]);
+                empty &= hash == EMPTY_HASH;
+                fingerprint = FingerprintTable.combine(fingerprint, hash + i);
+            }
+            if (empty && ignoreEmptyKeys) {
+                return;
+            }
+            report.scannedRowCount++;
+            int firstRow = firstRows.find(fingerprint, r -> keyEquals(excel, sheetIndex, r, keyColumnIndexes, key));
+            if (firstRow < 0) {
+                firstRows.add(fingerprint, row.getRowIndex());
+                return;
+            }
+            DuplicateGroup group = groups.get(firstRow);
+            if (group == null) {
+                group = new DuplicateGroup(Arrays.asList(key.clone()), firstRow);
+                groups.put(firstRow, group);
+            }
+            group.rows.add(row.getRowIndex());
+            report.duplicateRowCount++;
+        });
+        report.groups.addAll(groups.values());
+        report.groups.sort(Comparator.comparingInt(group -> group.rows.get(0)));
+        return report;
+    }
+
+    /**
+     * 删除关键字重复的行，每个关键字只保留第一次出现的行。所有重复行通过{@link AbstractExcel#removeRows(int, int[])}一次删除
+     *
+     * @param excel            excel对象
+     * @param sheetIndex       指定 Sheet 页，从 0 开始
+     * @param startRowIndex    起始行（含），之前的行（如表头）不参与查找
+     * @param keyColumnIndexes 关键字列，从0开始
+     * @return 重复行的报告，其中的行索引为删除前的索引
+     */
+    public DuplicateReport removeDuplicates(AbstractExcel<?> excel, int sheetIndex, int startRowIndex, int... keyColumnIndexes) {
+        DuplicateReport report = find(excel, sheetIndex, startRowIndex, keyColumnIndexes);
+        if (report.duplicateRowCount > 0) {
+            excel.removeRows(sheetIndex, report.getDuplicateRows());
+        }
+        return report;
+    }
+
+    /**
+     * 规范化后的值的哈希，不创建新的字符串
+     *
+     * @param value 值
+     * @return
+     */
+    private long hash(String value) {
+        if (value == null) {
+            return EMPTY_HASH;
+        }
+        int start = start(value);
+        int end = end(value, start);
+        long h = FingerprintTable.FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            h = FingerprintTable.hash(h, fold(value.charAt(i)));
+        }
+        return h;
+    }
+
+    private boolean keyEquals(AbstractExcel<?> excel, int sheetIndex, int rowIndex, int[] keyColumnIndexes, String[] key) {
+        for (int i = 0; i < keyColumnIndexes.length; i++) {
+            if (!valueEquals(excel.read(sheetIndex, rowIndex, keyColumnIndexes[i]), key[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 规范化后两个值是否相同
+     */
+    private boolean valueEquals(String a, String b) {
+        if (a == null) {
+            a = "";
+        }
+        if (b == null) {
+            b = "";
+        }
+        int aStart = start(a);
+        int aEnd = end(a, aStart);
+        int bStart = start(b);
+        int bEnd = end(b, bStart);
+        if (aEnd - aStart != bEnd - bStart) {
+            return false;
+        }
+        for (int i = aStart, j = bStart; i < aEnd; i++, j++) {
+            if (fold(a.charAt(i)) != fold(b.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int start(String value) {
+        int start = 0;
+        if (trimValues) {
+            while (start < value.length() && Character.isWhitespace(value.charAt(start))) {
+                start++;
+            }
+        }
+        return start;
+    }
+
+    private int end(String value, int start) {
+        int end = value.length();
+        if (trimValues) {
+            while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+                end--;
+            }
+        }
+        return end;
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+
+    /**
+     * 重复行的报告
+     */
+    @Getter
+    public static class DuplicateReport {
+        /**
+         * 重复的组，按第一行排序
+         */
+        private List<DuplicateGroup> groups = new ArrayList<>();
+
+        /**
+         * 参与查找的行数
+         */
+        private long scannedRowCount;
+
+        /**
+         * 重复行数，即各组中除第一行外的行数
+         */
+        private int duplicateRowCount;
+
+        /**
+         * 各组中除第一行外的所有行，即去重时要删除的行
+         *
+         * @return 升序的行索引
+         */
+        public int[] getDuplicateRows() {
+            int[] rows = new int[duplicateRowCount];
+            int count = 0;
+            for (DuplicateGroup group : groups) {
+                for (int i = 1; i < group.rows.size(); i++) {
+                    rows[count++] = group.rows.get(i);
+                }
+            }
+            Arrays.sort(rows);
+            return rows;
+        }
+
+        @Override
+        public String toString() {
+            return "查找行数：" + scannedRowCount + "，重复组数：" + groups.size() + "，重复行数：" + duplicateRowCount;
+        }
+    }
+
+    /**
+     * 关键字相同的一组行
+     */
+    @Getter
+    public static class DuplicateGroup {
+        /**
+         * 关键字各列的值
+         */
+        private List<String> key;
+
+        /**
+         * 关键字相同的各行，第一行为第一次出现的行
+         */
+        private List<Integer> rows = new ArrayList<>();
+
+        DuplicateGroup(List<String> key, int firstRow) {
+            this.key = key;
+            rows.add(firstRow);
+        }
+
+        @Override
+        public String toString() {
+            return key + "：" + rows;
+        }
+    }
+}
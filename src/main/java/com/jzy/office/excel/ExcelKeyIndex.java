@@ -0,0 +1,388 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ClassName ExcelKeyIndex
+ * @Author JinZhiyun
+ * @Description sheet中关键字列（如学号）的索引：关键字→所在行。建立索引时遍历一次sheet，之后按关键字查找行、读写单元格都是O(1)，
+ * 不需要每次都readColumn再逐行比较。同一个关键字可以出现在多行。
+ * <p>
+ * 索引依赖行索引，excel发生结构性修改（参见{@link AbstractExcel#getStructureModCount()}，如删除中间的行使后面的行上移）后，
+ * 下一次使用时自动重建。通过索引写入关键字列时索引同步更新；绕过索引直接修改关键字列的单元格时，
+ * 查到的行如果关键字已经变化会自动重建，但新写入的关键字需要调用{@link #rebuild()}后才能查到。
+ * 通过getWorkbook()直接操作工作簿的修改无法感知，同样需要调用{@link #rebuild()}。
+ * <p>
+ * 关键字多为数字编号时可以使用long关键字：形如整数的关键字（不含前导0等其他写法）存放在以long为键的开放寻址表中，
+ * 不为每个关键字创建String和Integer对象，占用内存更少；其他关键字仍存放在HashMap中
+ * @Date 2021/2/27 14:10
+ * @Version 1.0
+ **/
+public class ExcelKeyIndex {
+    /**
+     * 表示没有行
+     */
+    private static final int NO_ROW = -1;
+
+    /**
+     * 建立索引的excel对象
+     */
+    @Getter
+    private AbstractExcel<?> excel;
+
+    /**
+     * 建立索引的sheet、起始行和关键字列
+     */
+    @Getter
+    private int sheetIndex;
+
+    @Getter
+    private int startRowIndex;
+
+    @Getter
+    private int keyColumnIndex;
+
+    /**
+     * 是否将形如整数的关键字存放在以long为键的表中
+     */
+    @Getter
+    private boolean longKeys;
+
+    /**
+     * 关键字→该关键字所在的第一行
+     */
+    private Map<String, Integer> firstRows;
+
+    private LongRowTable longFirstRows;
+
+    /**
+     * 同一关键字所在的各行组成的链表：nextRows[row - startRowIndex]为与row关键字相同的下一行，没有时为NO_ROW
+     */
+    private int[] nextRows;
+
+    /**
+     * 建立索引时excel的结构性修改次数
+     */
+    private int builtStructureModCount;
+
+    /**
+     * 对excel中sheet的关键字列建立索引
+     *
+     * @param excel          excel对象
+     * @param sheetIndex     指定 Sheet 页，从 0 开始
+     * @param startRowIndex  起始行（含），之前的行（如表头）不建立索引
+     * @param keyColumnIndex 关键字列，从0开始
+     */
+    public ExcelKeyIndex(AbstractExcel<?> excel, int sheetIndex, int startRowIndex, int keyColumnIndex) {
+        this(excel, sheetIndex, startRowIndex, keyColumnIndex, false);
+    }
+
+    /**
+     * 对excel中sheet的关键字列建立索引
+     *
+     * @param excel          excel对象
+     * @param sheetIndex     指定 Sheet 页，从 0 开始
+     * @param startRowIndex  起始行（含），之前的行（如表头）不建立索引
+     * @param keyColumnIndex 关键字列，从0开始
+     * @param longKeys       是否将形如整数的关键字存放在以long为键的表中
+     */
+    public ExcelKeyIndex(AbstractExcel<?> excel, int sheetIndex, int startRowIndex, int keyColumnIndex, boolean longKeys) {
+        this.excel = excel;
+        this.sheetIndex = sheetIndex;
+        this.startRowIndex = startRowIndex;
+        this.keyColumnIndex = keyColumnIndex;
+        this.longKeys = longKeys;
+        rebuild();
+    }
+
+    /**
+     * 重新遍历sheet建立索引
+     */
+    public void rebuild() {
+        firstRows = new HashMap<>();
+        longFirstRows = longKeys ? new LongRowTable() : null;
+        int rowCount = excel.getRowCount(sheetIndex);
+        nextRows = new int[Math.max(rowCount - startRowIndex, 0)];
+        Arrays.fill(nextRows, NO_ROW);
+        //每个关键字当前最后一行，用于按行的顺序串起同一关键字的各行
+        Map<String, Integer> lastRows = new HashMap<>();
+        LongRowTable longLastRows = longKeys ? new LongRowTable() : null;
+        excel.forEachRow(sheetIndex, startRowIndex, row -> {
+            String key = row.read(keyColumnIndex);
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            int rowIndex = row.getRowIndex();
+            int last;
+            if (longKeys && isLongKey(key)) {
+                long longKey = Long.parseLong(key);
+                last = longLastRows.put(longKey, rowIndex);
+                if (last == NO_ROW) {
+                    longFirstRows.put(longKey, rowIndex);
+                }
+            } else {
+                Integer previous = lastRows.put(key, rowIndex);
+                last = previous == null ? NO_ROW : previous;
+                if (last == NO_ROW) {
+                    firstRows.put(key, rowIndex);
+                }
+            }
+            if (last != NO_ROW) {
+                nextRows[last - startRowIndex] = rowIndex;
+            }
+        });
+        builtStructureModCount = excel.getStructureModCount();
+    }
+
+    /**
+     * 索引中不同关键字的个数
+     *
+     * @return
+     */
+    public int size() {
+        checkStructure();
+        return firstRows.size() + (longFirstRows == null ? 0 : longFirstRows.size());
+    }
+
+    /**
+     * 是否存在关键字
+     *
+     * @param key 关键字
+     * @return
+     */
+    public boolean containsKey(String key) {
+        return getRow(key) != NO_ROW;
+    }
+
+    /**
+     * 关键字所在的第一行
+     *
+     * @param key 关键字
+     * @return 行索引，不存在时返回-1
+     */
+    public int getRow(String key) {
+        checkStructure();
+        int row = firstRow(key);
+        if (row != NO_ROW && !key.equals(excel.read(sheetIndex, row, keyColumnIndex))) {
+            //关键字列被直接修改过
+            rebuild();
+            row = firstRow(key);
+        }
+        return row;
+    }
+
+    /**
+     * 关键字所在的第一行
+     *
+     * @param key 整数关键字
+     * @return 行索引，不存在时返回-1
+     */
+    public int getRow(long key) {
+        return getRow(Long.toString(key));
+    }
+
+    /**
+     * 关键字所在的所有行
+     *
+     * @param key 关键字
+     * @return 按行的顺序，不存在时返回空数组
+     */
+    public int[] getRows(String key) {
+        int[] rows = collectRows(getRow(key));
+        for (int row : rows) {
+            if (!key.equals(excel.read(sheetIndex, row, keyColumnIndex))) {
+                //关键字列被直接修改过
+                rebuild();
+                return collectRows(firstRow(key));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 从第一行开始沿链表收集同一关键字的所有行
+     *
+     * @param firstRow 第一行
+     * @return
+     */
+    private int[] collectRows(int firstRow) {
+        int count = 0;
+        for (int r = firstRow; r != NO_ROW; r = nextRows[r - startRowIndex]) {
+            count++;
+        }
+        int[] rows = new int[count];
+        count = 0;
+        for (int r = firstRow; r != NO_ROW; r = nextRows[r - startRowIndex]) {
+            rows[count++] = r;
+        }
+        return rows;
+    }
+
+    /**
+     * 读取关键字所在的第一行中指定列的单元格值
+     *
+     * @param key      关键字
+     * @param colIndex 指定列，从0开始
+     * @return 关键字不存在或单元格为空时返回null
+     */
+    public String read(String key, int colIndex) {
+        int row = getRow(key);
+        return row == NO_ROW ? null : excel.read(sheetIndex, row, colIndex);
+    }
+
+    /**
+     * 设置关键字所在的所有行中指定列的单元格值。写入关键字列时同步更新索引
+     *
+     * @param key      关键字
+     * @param colIndex 指定列，从0开始
+     * @param value    值
+     * @return 关键字不存在时返回false
+     */
+    public boolean write(String key, int colIndex, String value) {
+        int[] rows = getRows(key);
+        if (rows.length == 0) {
+            return false;
+        }
+        for (int row : rows) {
+            excel.write(sheetIndex, row, colIndex, value);
+        }
+        if (colIndex == keyColumnIndex && !key.equals(value)) {
+            //关键字变化，重新串起受影响的行
+            rebuild();
+        }
+        return true;
+    }
+
+    /**
+     * excel发生结构性修改后重建索引
+     */
+    private void checkStructure() {
+        if (builtStructureModCount != excel.getStructureModCount()) {
+            rebuild();
+        }
+    }
+
+    private int firstRow(String key) {
+        //与rebuild一致，空关键字不在索引中
+        if (key == null || key.isEmpty()) {
+            return NO_ROW;
+        }
+        if (longKeys && isLongKey(key)) {
+            return longFirstRows.get(Long.parseLong(key));
+        }
+        Integer row = firstRows.get(key);
+        return row == null ? NO_ROW : row;
+    }
+
+    /**
+     * 关键字是否为整数的标准写法，即与Long.toString的结果相同。前导0、正号等写法的关键字不能与数值互换
+     *
+     * @param key 关键字
+     * @return
+     */
+    private static boolean isLongKey(String key) {
+        int length = key.length();
+        int start = key.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > 18) {
+            //18位以内的数字不会溢出
+            return false;
+        }
+        if (key.charAt(start) == '0' && length - start > 1) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return !"-0".equals(key);
+    }
+
+    /**
+     * long关键字→行索引的开放寻址哈希表
+     */
+    private static class LongRowTable {
+        private long[] keys = new long[16];
+
+        /**
+         * 行索引，NO_ROW表示空位
+         */
+        private int[] rows = newRows(16);
+
+        private int size;
+
+        private static int[] newRows(int capacity) {
+            int[] rows = new int[capacity];
+            Arrays.fill(rows, NO_ROW);
+            return rows;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; rows[i] != NO_ROW; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return rows[i];
+                }
+            }
+            return NO_ROW;
+        }
+
+        /**
+         * 设置关键字对应的行
+         *
+         * @param key 关键字
+         * @param row 行索引
+         * @return 原来对应的行，没有时返回NO_ROW
+         */
+        int put(long key, int row) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            for (; rows[i] != NO_ROW; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    int previous = rows[i];
+                    rows[i] = row;
+                    return previous;
+                }
+            }
+            keys[i] = key;
+            rows[i] = row;
+            if (++size > keys.length >> 1) {
+                //装载因子不超过0.5
+                resize();
+            }
+            return NO_ROW;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new long[oldKeys.length << 1];
+            rows = newRows(oldKeys.length << 1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldRows[j] != NO_ROW) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (rows[i] != NO_ROW) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    rows[i] = oldRows[j];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
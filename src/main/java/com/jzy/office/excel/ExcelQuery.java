@@ -0,0 +1,512 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * @ClassName ExcelQuery
+ * @Author JinZhiyun
+ * @Description sheet上的简单查询：按列筛选（where）、选取列（select）、分组（groupBy）和聚合（count、sum、min、max、distinct），
+ * 代替手写的嵌套循环。列可以用表头中的名称或列索引指定。
+ * <p>
+ * 查询通过{@link AbstractExcel#forEachRow(int, int, int, ExcelRowHandler)}遍历一次sheet完成：每行先逐个读取筛选条件所在的列，
+ * 有一个条件不满足就跳过该行，不再读取其他列；满足条件的行也只读取选取、分组和聚合用到的列。为空的行不参与查询。
+ * <pre>
+ * //统计各性别的人数和年龄之和
+ * excel.query(0).groupBy("性别").aggregate(Aggregation.count(), Aggregation.sum("年龄"));
+ * </pre>
+ * @Date 2021/3/1 10:00
+ * @Version 1.0
+ **/
+public class ExcelQuery {
+    private AbstractExcel<?> excel;
+
+    private int sheetIndex;
+
+    /**
+     * 表头所在行，小于0时没有表头，只能用列索引指定列
+     */
+    private int headerRowIndex;
+
+    private int startRowIndex;
+
+    private int endRowIndex = Integer.MAX_VALUE;
+
+    /**
+     * 筛选条件所在的列，为String（列名）或Integer（列索引）
+     */
+    private List<Object> whereColumns = new ArrayList<>();
+
+    private List<Predicate<String>> wherePredicates = new ArrayList<>();
+
+    /**
+     * 选取的列，为null时选取每行的所有列
+     */
+    private List<Object> selectColumns;
+
+    private List<Object> groupByColumns = new ArrayList<>();
+
+    /**
+     * 表头列名→列索引，用到列名时才读取表头
+     */
+    private Map<String, Integer> columnIndexes;
+
+    /**
+     * 查询sheet，第一行为表头，从第二行开始查询
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     */
+    public ExcelQuery(AbstractExcel<?> excel, int sheetIndex) {
+        this.excel = excel;
+        this.sheetIndex = sheetIndex;
+        header(0);
+    }
+
+    /**
+     * 设置表头所在行，从表头的下一行开始查询
+     *
+     * @param headerRowIndex 表头所在行，从0开始
+     * @return
+     */
+    public ExcelQuery header(int headerRowIndex) {
+        this.headerRowIndex = headerRowIndex;
+        this.startRowIndex = headerRowIndex + 1;
+        this.columnIndexes = null;
+        return this;
+    }
+
+    /**
+     * sheet没有表头，从第一行开始查询，只能用列索引指定列
+     *
+     * @return
+     */
+    public ExcelQuery noHeader() {
+        header(-1);
+        return this;
+    }
+
+    /**
+     * 只查询从startRowIndex行到endRowIndex行
+     *
+     * @param startRowIndex 起始行（含）
+     * @param endRowIndex   结束行（含）
+     * @return
+     */
+    public ExcelQuery rows(int startRowIndex, int endRowIndex) {
+        this.startRowIndex = startRowIndex;
+        this.endRowIndex = endRowIndex;
+        return this;
+    }
+
+    /**
+     * 增加筛选条件，多个条件同时满足的行才被选中
+     *
+     * @param column    列名
+     * @param predicate 条件，输入该列的值（单元格为空时为null）
+     * @return
+     */
+    public ExcelQuery where(String column, Predicate<String> predicate) {
+        whereColumns.add(column);
+        wherePredicates.add(predicate);
+        return this;
+    }
+
+    /**
+     * 增加筛选条件，多个条件同时满足的行才被选中
+     *
+     * @param colIndex  列索引，从0开始
+     * @param predicate 条件，输入该列的值（单元格为空时为null）
+     * @return
+     */
+    public ExcelQuery where(int colIndex, Predicate<String> predicate) {
+        whereColumns.add(colIndex);
+        wherePredicates.add(predicate);
+        return this;
+    }
+
+    /**
+     * 选取列，不调用时选取每行的所有列
+     *
+     * @param columns 列名
+     * @return
+     */
+    public ExcelQuery select(String... columns) {
+        selectColumns = new ArrayList<>(Arrays.asList(columns));
+        return this;
+    }
+
+    /**
+     * 选取列，不调用时选取每行的所有列
+     *
+     * @param colIndexes 列索引，从0开始
+     * @return
+     */
+    public ExcelQuery select(int... colIndexes) {
+        selectColumns = new ArrayList<>();
+        for (int colIndex : colIndexes) {
+            selectColumns.add(colIndex);
+        }
+        return this;
+    }
+
+    /**
+     * 设置分组的列，聚合时每组得到一行结果
+     *
+     * @param columns 列名
+     * @return
+     */
+    public ExcelQuery groupBy(String... columns) {
+        groupByColumns = new ArrayList<>(Arrays.asList(columns));
+        return this;
+    }
+
+    /**
+     * 设置分组的列，聚合时每组得到一行结果
+     *
+     * @param colIndexes 列索引，从0开始
+     * @return
+     */
+    public ExcelQuery groupBy(int... colIndexes) {
+        groupByColumns = new ArrayList<>();
+        for (int colIndex : colIndexes) {
+            groupByColumns.add(colIndex);
+        }
+        return this;
+    }
+
+    /**
+     * 满足条件的行数
+     *
+     * @return
+     */
+    public long count() {
+        long[] count = new long[1];
+        execute(row -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * 满足条件的各行中选取的列
+     *
+     * @return 每行选取的列的值
+     */
+    public List<List<String>> list() {
+        List<List<String>> result = new ArrayList<>();
+        forEach(result::add);
+        return result;
+    }
+
+    /**
+     * 对满足条件的每一行，将选取的列交给consumer，不保存结果
+     *
+     * @param consumer 输入选取的列的值
+     */
+    public void forEach(Consumer<List<String>> consumer) {
+        int[] selected = selectColumns == null ? null : resolve(selectColumns);
+        execute(row -> {
+            List<String> values;
+            if (selected == null) {
+                int columnCount = row.getColumnCount();
+                values = new ArrayList<>(Math.max(columnCount, 0));
+                for (int c = 0; c < columnCount; c++) {
+                    values.add(row.read(c));
+                }
+            } else {
+                values = new ArrayList<>(selected.length);
+                for (int c : selected) {
+                    values.add(row.read(c));
+                }
+            }
+            consumer.accept(values);
+        });
+    }
+
+    /**
+     * 聚合满足条件的行。设置了分组的列时每组得到一行结果，按各组第一次出现的顺序；否则所有行聚合为一行结果
+     *
+     * @param aggregations 聚合函数
+     * @return 聚合结果
+     */
+    public List<AggregateRow> aggregate(Aggregation... aggregations) {
+        int[] groupBy = resolve(groupByColumns);
+        int[] columns = new int[aggregations.length];
+        for (int i = 0; i < aggregations.length; i++) {
+            columns[i] = aggregations[i].column == null ? -1 : resolve(aggregations[i].column);
+        }
+        Map<List<String>, AggregateState> groups = new LinkedHashMap<>();
+        if (groupBy.length == 0) {
+            groups.put(Collections.emptyList(), new AggregateState(aggregations));
+        }
+        execute(row -> {
+            List<String> group;
+            if (groupBy.length == 0) {
+                group = Collections.emptyList();
+            } else {
+                String[] values = new String[groupBy.length];
+                for (int i = 0; i < groupBy.length; i++) {
+                    values[i] = row.read(groupBy[i]);
+                }
+                group = Arrays.asList(values);
+            }
+            AggregateState state = groups.get(group);
+            if (state == null) {
+                state = new AggregateState(aggregations);
+                groups.put(group, state);
+            }
+            for (int i = 0; i < aggregations.length; i++) {
+                state.accumulate(i, aggregations[i].type, columns[i] < 0 ? null : row.read(columns[i]));
+            }
+        });
+        List<AggregateRow> result = new ArrayList<>(groups.size());
+        for (Map.Entry<List<String>, AggregateState> entry : groups.entrySet()) {
+            result.add(new AggregateRow(entry.getKey(), entry.getValue().finish(aggregations)));
+        }
+        return result;
+    }
+
+    /**
+     * 遍历满足条件的行
+     *
+     * @param handler 满足条件的行的回调
+     */
+    private void execute(ExcelRowHandler handler) {
+        int[] where = resolve(whereColumns);
+        List<Predicate<String>> predicates = new ArrayList<>(wherePredicates);
+        excel.forEachRow(sheetIndex, startRowIndex, endRowIndex, row -> {
+            if (row.isNullRow()) {
+                return;
+            }
+            for (int i = 0; i < where.length; i++) {
+                if (!predicates.get(i).test(row.read(where[i]))) {
+                    return;
+                }
+            }
+            handler.handle(row);
+        });
+    }
+
+    private int[] resolve(List<Object> columns) {
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = resolve(columns.get(i));
+        }
+        return indexes;
+    }
+
+    /**
+     * 将列名或列索引转换为列索引
+     *
+     * @param column 列名或列索引
+     * @return
+     */
+    private int resolve(Object column) {
+        if (column instanceof Integer) {
+            return (Integer) column;
+        }
+        if (headerRowIndex < 0) {
+            throw new IllegalArgumentException("没有表头，不能用列名指定列：" + column);
+        }
+        if (columnIndexes == null) {
+            columnIndexes = new HashMap<>();
+            List<String> header = excel.readRow(sheetIndex, headerRowIndex);
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i) != null) {
+                    columnIndexes.putIfAbsent(header.get(i), i);
+                }
+            }
+        }
+        Integer index = columnIndexes.get(column);
+        if (index == null) {
+            throw new IllegalArgumentException("表头中没有列：" + column);
+        }
+        return index;
+    }
+
+    private enum AggregateType {
+        COUNT, SUM, MIN, MAX, DISTINCT
+    }
+
+    /**
+     * 聚合函数，由{@link #count()}、{@link #sum(String)}等静态方法创建
+     */
+    public static class Aggregation {
+        private AggregateType type;
+
+        /**
+         * 聚合的列，为String（列名）或Integer（列索引），count时为null
+         */
+        private Object column;
+
+        private Aggregation(AggregateType type, Object column) {
+            this.type = type;
+            this.column = column;
+        }
+
+        /**
+         * 行数
+         *
+         * @return
+         */
+        public static Aggregation count() {
+            return new Aggregation(AggregateType.COUNT, null);
+        }
+
+        /**
+         * 列中数值的和，不是数字的值被忽略
+         *
+         * @param column 列名
+         * @return
+         */
+        public static Aggregation sum(String column) {
+            return new Aggregation(AggregateType.SUM, column);
+        }
+
+        public static Aggregation sum(int colIndex) {
+            return new Aggregation(AggregateType.SUM, colIndex);
+        }
+
+        /**
+         * 列中数值的最小值，不是数字的值被忽略，没有数值时为NaN
+         *
+         * @param column 列名
+         * @return
+         */
+        public static Aggregation min(String column) {
+            return new Aggregation(AggregateType.MIN, column);
+        }
+
+        public static Aggregation min(int colIndex) {
+            return new Aggregation(AggregateType.MIN, colIndex);
+        }
+
+        /**
+         * 列中数值的最大值，不是数字的值被忽略，没有数值时为NaN
+         *
+         * @param column 列名
+         * @return
+         */
+        public static Aggregation max(String column) {
+            return new Aggregation(AggregateType.MAX, column);
+        }
+
+        public static Aggregation max(int colIndex) {
+            return new Aggregation(AggregateType.MAX, colIndex);
+        }
+
+        /**
+         * 列中不同的非空值的个数
+         *
+         * @param column 列名
+         * @return
+         */
+        public static Aggregation distinct(String column) {
+            return new Aggregation(AggregateType.DISTINCT, column);
+        }
+
+        public static Aggregation distinct(int colIndex) {
+            return new Aggregation(AggregateType.DISTINCT, colIndex);
+        }
+
+        @Override
+        public String toString() {
+            return type.name().toLowerCase() + "(" + (column == null ? "*" : column) + ")";
+        }
+    }
+
+    /**
+     * 一组的聚合中间结果
+     */
+    private static class AggregateState {
+        private double[] values;
+
+        /**
+         * 各聚合的不同值集合，只有DISTINCT聚合不为null
+         */
+        private List<Set<String>> distinctValues;
+
+        AggregateState(Aggregation[] aggregations) {
+            values = new double[aggregations.length];
+            distinctValues = new ArrayList<>(aggregations.length);
+            for (int i = 0; i < aggregations.length; i++) {
+                if (aggregations[i].type == AggregateType.MIN || aggregations[i].type == AggregateType.MAX) {
+                    values[i] = Double.NaN;
+                }
+                distinctValues.add(aggregations[i].type == AggregateType.DISTINCT ? new HashSet<>() : null);
+            }
+        }
+
+        void accumulate(int i, AggregateType type, String value) {
+            if (type == AggregateType.COUNT) {
+                values[i]++;
+                return;
+            }
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            if (type == AggregateType.DISTINCT) {
+                distinctValues.get(i).add(value);
+                return;
+            }
+            double number = CellValues.parseNumber(value);
+            if (Double.isNaN(number)) {
+                return;
+            }
+            if (type == AggregateType.SUM) {
+                values[i] += number;
+            } else if (type == AggregateType.MIN) {
+                values[i] = Double.isNaN(values[i]) ? number : Math.min(values[i], number);
+            } else {
+                values[i] = Double.isNaN(values[i]) ? number : Math.max(values[i], number);
+            }
+        }
+
+        double[] finish(Aggregation[] aggregations) {
+            for (int i = 0; i < aggregations.length; i++) {
+                if (distinctValues.get(i) != null) {
+                    values[i] = distinctValues.get(i).size();
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * 聚合结果的一行
+     */
+    @Getter
+    public static class AggregateRow {
+        /**
+         * 分组的列的值，没有分组时为空列表
+         */
+        private List<String> group;
+
+        /**
+         * 各聚合函数的结果，与aggregate的参数一一对应
+         */
+        private double[] values;
+
+        AggregateRow(List<String> group, double[] values) {
+            this.group = group;
+            this.values = values;
+        }
+
+        /**
+         * 第i个聚合函数的结果
+         *
+         * @param i 聚合函数的序号，从0开始
+         * @return
+         */
+        public double getValue(int i) {
+            return values[i];
+        }
+
+        @Override
+        public String toString() {
+            return group + "=" + Arrays.toString(values);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.jzy.office.excel;
+
+/**
+ * @InterfaceName ExcelRow
+ * @Author JinZhiyun
+ * @Description 逐行遍历sheet时的当前行，参见{@link AbstractExcel#forEachRow(int, int, int, ExcelRowHandler)}。
+ * 遍历时同一个对象会被复用并指向不同的行，不要在回调之外保存它
+ * @Date 2021/2/27 10:05
+ * @Version 1.0
+ **/
+public interface ExcelRow {
+    /**
+     * 当前行所在的sheet
+     *
+     * @return sheet索引，从0开始
+     */
+    int getSheetIndex();
+
+    /**
+     * 当前行的索引
+     *
+     * @return 行索引，从0开始
+     */
+    int getRowIndex();
+
+    /**
+     * 当前行是否为空（不存在）
+     *
+     * @return
+     */
+    boolean isNullRow();
+
+    /**
+     * 返回当前行的列数
+     *
+     * @return 返回-1 表示当前行为空
+     */
+    int getColumnCount();
+
+    /**
+     * 返回当前行指定列的单元格值，与{@link AbstractExcel#read(int, int, int)}一致
+     *
+     * @param colIndex 指定列，从0开始
+     * @return 行或单元格为空时返回null
+     */
+    String read(int colIndex);
+
+    /**
+     * 设置当前行指定列的单元格值，行或单元格不存在时创建
+     *
+     * @param colIndex 指定列，从0开始
+     * @param value    值
+     * @return
+     */
+    boolean write(int colIndex, String value);
+}
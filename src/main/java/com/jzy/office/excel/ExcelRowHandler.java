@@ -0,0 +1,18 @@
+package com.jzy.office.excel;
+
+/**
+ * @InterfaceName ExcelRowHandler
+ * @Author JinZhiyun
+ * @Description 逐行遍历sheet的回调，参见{@link AbstractExcel#forEachRow(int, int, int, ExcelRowHandler)}
+ * @Date 2021/2/27 10:05
+ * @Version 1.0
+ **/
+@FunctionalInterface
+public interface ExcelRowHandler {
+    /**
+     * 处理一行
+     *
+     * @param row 当前行，只在本次回调中有效
+     */
+    void handle(ExcelRow row);
+}
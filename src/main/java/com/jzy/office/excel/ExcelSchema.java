@@ -0,0 +1,333 @@
+package com.jzy.office.excel;
+
+import com.jzy.util.MyTimeUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @ClassName ExcelSchema
+ * @Author JinZhiyun
+ * @Description sheet的列类型，以及按列类型预先编译好的解码方式，通常由{@link ExcelSchemaInferrer}推断得到。
+ * 解码时每列直接使用编译好的解码器（日期格式的DateTimeFormatter从{@link MyTimeUtils#getFormatter(String)}取得），不再逐个单元格判断类型。
+ * <p>
+ * {@link #read(AbstractExcel, int, Consumer)}逐行把单元格解码为对应类型的值，不符合列类型的单元格解码为null并记录错误，
+ * 不会因为一个错误的单元格抛出NumberFormatException而中断整个导入
+ * @Date 2021/3/1 16:10
+ * @Version 1.0
+ **/
+public class ExcelSchema {
+    private static final String[] TRUE_VALUES = {"是", "true", "y", "yes"};
+
+    private static final String[] FALSE_VALUES = {"否", "false", "n", "no"};
+
+    /**
+     * 整数的最大位数，18位以内的整数不会超出long的范围
+     */
+    private static final int MAX_INTEGER_DIGITS = 18;
+
+    /**
+     * 数据开始的行
+     */
+    @Getter
+    private int startRowIndex;
+
+    /**
+     * 各列的类型，按列索引排列
+     */
+    @Getter
+    private List<ColumnSchema> columns;
+
+    /**
+     * 最多记录的解码错误个数，超过后只计数
+     */
+    @Getter
+    @Setter
+    private int maxErrors = 100;
+
+    /**
+     * @param startRowIndex 数据开始的行
+     * @param columns       各列的类型，按列索引排列
+     */
+    public ExcelSchema(int startRowIndex, List<ColumnSchema> columns) {
+        this.startRowIndex = startRowIndex;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+    }
+
+    /**
+     * 按表头中的列名查找列
+     *
+     * @param name 列名
+     * @return 没有该列时返回null
+     */
+    public ColumnSchema getColumn(String name) {
+        for (ColumnSchema column : columns) {
+            if (name.equals(column.name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 逐行解码sheet中从数据开始行到最后一行的数据，为空的行跳过
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @param consumer   输入每行解码后的值，下标为列索引，单元格为空或不符合列类型时为null。数组在每行之间不共用
+     * @return 解码结果，包括解码的行数和错误
+     */
+    public DecodeResult read(AbstractExcel<?> excel, int sheetIndex, Consumer<Object[]> consumer) {
+        DecodeResult result = new DecodeResult();
+        excel.forEachRow(sheetIndex, startRowIndex, row -> {
+            if (row.isNullRow()) {
+                return;
+            }
+            Object[] values = new Object[columns.size()];
+            for (int c = 0; c < values.length; c++) {
+                ColumnSchema column = columns.get(c);
+                String value = row.read(c);
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                values[c] = column.decode(value);
+                if (values[c] == null) {
+                    result.error(maxErrors, new DecodeError(row.getRowIndex(), c, value, column));
+                }
+            }
+            result.rowCount++;
+            consumer.accept(values);
+        });
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return columns.toString();
+    }
+
+    /**
+     * 是否为整数：可选的负号、不以0开头（0本身除外）的最多18位数字，可以带全为0的小数部分（如数值单元格读出的"22.0"）
+     *
+     * @param value 值
+     * @return
+     */
+    static boolean isInteger(String value) {
+        int length = value.length();
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int i = start;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        int digits = i - start;
+        if (digits == 0 || digits > MAX_INTEGER_DIGITS || (digits > 1 && value.charAt(start) == '0')) {
+            return false;
+        }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && value.charAt(i) == '0') {
+                i++;
+            }
+        }
+        return i == length;
+    }
+
+    private static Long decodeInteger(String value) {
+        if (!isInteger(value)) {
+            return null;
+        }
+        int dot = value.indexOf('.');
+        return Long.parseLong(dot < 0 ? value : value.substring(0, dot));
+    }
+
+    /**
+     * 解码布尔值
+     *
+     * @param value 值
+     * @return 不是布尔值时返回null
+     */
+    static Boolean decodeBoolean(String value) {
+        for (String trueValue : TRUE_VALUES) {
+            if (trueValue.equalsIgnoreCase(value)) {
+                return Boolean.TRUE;
+            }
+        }
+        for (String falseValue : FALSE_VALUES) {
+            if (falseValue.equalsIgnoreCase(value)) {
+                return Boolean.FALSE;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 编译好的单列解码器
+     */
+    private interface ValueDecoder {
+        /**
+         * 解码非空值
+         *
+         * @param value 值
+         * @return 不符合列类型时返回null
+         */
+        Object decode(String value);
+    }
+
+    /**
+     * 一列的类型
+     */
+    @Getter
+    public static class ColumnSchema {
+        /**
+         * 列索引
+         */
+        private int columnIndex;
+
+        /**
+         * 表头中的列名，没有表头时为null
+         */
+        private String name;
+
+        private ExcelColumnTypeEnum type;
+
+        /**
+         * 日期格式，类型为日期时才有
+         */
+        private String datePattern;
+
+        /**
+         * 推断时样本中是否有空值
+         */
+        private boolean nullable;
+
+        /**
+         * 推断时样本的非空值中符合该类型的比例
+         */
+        private double matchRatio;
+
+        @Getter(AccessLevel.NONE)
+        private ValueDecoder decoder;
+
+        /**
+         * @param columnIndex 列索引
+         * @param name        列名
+         * @param type        类型
+         * @param datePattern 日期格式，类型为日期时不能为null
+         * @param nullable    是否有空值
+         * @param matchRatio  符合该类型的比例
+         */
+        public ColumnSchema(int columnIndex, String name, ExcelColumnTypeEnum type, String datePattern, boolean nullable,
+                            double matchRatio) {
+            this.columnIndex = columnIndex;
+            this.name = name;
+            this.type = type;
+            this.datePattern = datePattern;
+            this.nullable = nullable;
+            this.matchRatio = matchRatio;
+            this.decoder = compile();
+        }
+
+        private ValueDecoder compile() {
+            switch (type) {
+                case INTEGER:
+                    return ExcelSchema::decodeInteger;
+                case DECIMAL:
+                    return value -> {
+                        double number = CellValues.parseNumber(value);
+                        return Double.isNaN(number) ? null : number;
+                    };
+                case BOOLEAN:
+                    return ExcelSchema::decodeBoolean;
+                case DATE:
+                    if (datePattern == null) {
+                        throw new IllegalArgumentException("日期列必须指定日期格式：第" + (columnIndex + 1) + "列");
+                    }
+                    DateTimeFormatter formatter = MyTimeUtils.getFormatter(datePattern);
+                    return value -> MyTimeUtils.parseDate(value, formatter);
+                default:
+                    return value -> value;
+            }
+        }
+
+        /**
+         * 解码非空值
+         *
+         * @param value 值
+         * @return 不符合列类型时返回null
+         */
+        public Object decode(String value) {
+            return decoder.decode(value);
+        }
+
+        @Override
+        public String toString() {
+            return (name == null ? "第" + (columnIndex + 1) + "列" : name) + "：" + type
+                    + (datePattern == null ? "" : "(" + datePattern + ")") + (nullable ? "，可为空" : "");
+        }
+    }
+
+    /**
+     * 解码结果
+     */
+    @Getter
+    public static class DecodeResult {
+        /**
+         * 解码的行数
+         */
+        private long rowCount;
+
+        /**
+         * 不符合列类型的单元格个数
+         */
+        private long errorCount;
+
+        /**
+         * 记录的错误，最多maxErrors个
+         */
+        private List<DecodeError> errors = new ArrayList<>();
+
+        void error(int maxErrors, DecodeError error) {
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            }
+            errorCount++;
+        }
+
+        @Override
+        public String toString() {
+            return "解码行数：" + rowCount + "，错误数：" + errorCount + (errors.isEmpty() ? "" : "，" + errors);
+        }
+    }
+
+    /**
+     * 不符合列类型的单元格
+     */
+    @Getter
+    public static class DecodeError {
+        private int rowIndex;
+
+        private int columnIndex;
+
+        private String value;
+
+        private ColumnSchema column;
+
+        DecodeError(int rowIndex, int columnIndex, String value, ColumnSchema column) {
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.value = value;
+            this.column = column;
+        }
+
+        @Override
+        public String toString() {
+            return "第" + (rowIndex + 1) + "行第" + (columnIndex + 1) + "列的值" + value + "不是" + column.type;
+        }
+    }
+}
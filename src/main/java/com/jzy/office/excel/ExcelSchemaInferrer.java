@@ -0,0 +1,215 @@
+package com.jzy.office.excel;
+
+import com.jzy.util.MyTimeUtils;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * @ClassName ExcelSchemaInferrer
+ * @Author JinZhiyun
+ * @Description 根据样本行推断sheet每一列的类型（整数、小数、布尔值、日期及其格式、文本），得到可以反复使用的{@link ExcelSchema}。
+ * <p>
+ * 默认取数据的前{@link #sampleRowCount}行作为样本；数据按某种顺序排列、前几行不具代表性时，可以开启{@link #reservoirSampling}，
+ * 遍历整个sheet用蓄水池抽样均匀地抽取样本。样本的非空值中至少{@link #minMatchRatio}符合某类型时该列推断为该类型，
+ * 个别错误的单元格不会使整列退化为文本，解码时这些单元格作为错误报告
+ * @Date 2021/3/1 16:40
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelSchemaInferrer {
+    /**
+     * 表头所在行，小于0时没有表头。数据从表头的下一行开始
+     */
+    private int headerRowIndex;
+
+    /**
+     * 样本行数
+     */
+    private int sampleRowCount = 1000;
+
+    /**
+     * 是否遍历整个sheet用蓄水池抽样抽取样本，否则取前sampleRowCount行
+     */
+    private boolean reservoirSampling;
+
+    /**
+     * 蓄水池抽样的随机数种子，相同的种子得到相同的样本
+     */
+    private long randomSeed = 1L;
+
+    /**
+     * 推断为某类型所需的符合比例
+     */
+    private double minMatchRatio = 0.95;
+
+    /**
+     * 尝试的日期格式，按顺序匹配。默认第一个为{@link CommonExcel}读取日期单元格时使用的格式
+     */
+    private List<String> datePatterns = new ArrayList<>(Arrays.asList(MyTimeUtils.FORMAT_YMDHMS_BACKUP,
+            MyTimeUtils.FORMAT_YMDHMS, MyTimeUtils.FORMAT_YMD, "yyyy/MM/dd"));
+
+    /**
+     * 推断sheet每一列的类型
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @return 列类型
+     */
+    public ExcelSchema infer(AbstractExcel<?> excel, int sheetIndex) {
+        int startRowIndex = headerRowIndex + 1;
+        List<String> header = headerRowIndex < 0 ? Collections.emptyList() : excel.readRow(sheetIndex, headerRowIndex);
+        List<String[]> samples = reservoirSampling ? reservoirSample(excel, sheetIndex, startRowIndex)
+                : firstRows(excel, sheetIndex, startRowIndex);
+        int columnCount = header.size();
+        for (String[] sample : samples) {
+            columnCount = Math.max(columnCount, sample.length);
+        }
+        DateTimeFormatter[] formatters = new DateTimeFormatter[datePatterns.size()];
+        for (int i = 0; i < formatters.length; i++) {
+            formatters[i] = MyTimeUtils.getFormatter(datePatterns.get(i));
+        }
+        List<ExcelSchema.ColumnSchema> columns = new ArrayList<>(columnCount);
+        for (int c = 0; c < columnCount; c++) {
+            columns.add(inferColumn(c, c < header.size() ? header.get(c) : null, samples, formatters));
+        }
+        return new ExcelSchema(startRowIndex, columns);
+    }
+
+    /**
+     * 推断一列的类型：依次尝试整数、小数、布尔值、各日期格式，取第一个符合比例达到要求的类型，都不满足时为文本。
+     * 整数部分以0开头的值（如007）不计为整数或小数，这样的编号列推断为文本
+     *
+     * @param columnIndex 列索引
+     * @param name        列名
+     * @param samples     样本行
+     * @param formatters  各日期格式
+     * @return
+     */
+    private ExcelSchema.ColumnSchema inferColumn(int columnIndex, String name, List<String[]> samples,
+                                                 DateTimeFormatter[] formatters) {
+        int nonNullCount = 0;
+        int integerCount = 0;
+        int decimalCount = 0;
+        int booleanCount = 0;
+        int[] dateCounts = new int[formatters.length];
+        boolean nullable = false;
+        for (String[] sample : samples) {
+            String value = columnIndex < sample.length ? sample[columnIndex] : null;
+            if (value == null || value.isEmpty()) {
+                nullable = true;
+                continue;
+            }
+            nonNullCount++;
+            if (CellValues.isNumber(value)) {
+                //007这样整数部分以0开头的值是编号，按数字读取会丢失开头的0，不计为数字
+                if (!hasLeadingZero(value)) {
+                    decimalCount++;
+                    if (ExcelSchema.isInteger(value)) {
+                        integerCount++;
+                    }
+                }
+                //数字不会是布尔值或日期
+                continue;
+            }
+            if (ExcelSchema.decodeBoolean(value) != null) {
+                booleanCount++;
+                continue;
+            }
+            for (int i = 0; i < formatters.length; i++) {
+                if (MyTimeUtils.parseDate(value, formatters[i]) != null) {
+                    dateCounts[i]++;
+                }
+            }
+        }
+        if (nonNullCount == 0) {
+            return new ExcelSchema.ColumnSchema(columnIndex, name, ExcelColumnTypeEnum.STRING, null, true, 0);
+        }
+        int required = (int) Math.ceil(nonNullCount * minMatchRatio);
+        if (integerCount >= required) {
+            return column(columnIndex, name, ExcelColumnTypeEnum.INTEGER, null, nullable, integerCount, nonNullCount);
+        }
+        if (decimalCount >= required) {
+            return column(columnIndex, name, ExcelColumnTypeEnum.DECIMAL, null, nullable, decimalCount, nonNullCount);
+        }
+        if (booleanCount >= required) {
+            return column(columnIndex, name, ExcelColumnTypeEnum.BOOLEAN, null, nullable, booleanCount, nonNullCount);
+        }
+        int best = -1;
+        for (int i = 0; i < dateCounts.length; i++) {
+            if (dateCounts[i] >= required && (best < 0 || dateCounts[i] > dateCounts[best])) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            return column(columnIndex, name, ExcelColumnTypeEnum.DATE, datePatterns.get(best), nullable, dateCounts[best], nonNullCount);
+        }
+        return column(columnIndex, name, ExcelColumnTypeEnum.STRING, null, nullable, nonNullCount, nonNullCount);
+    }
+
+    /**
+     * 数字的整数部分是否以0开头且不止一位，如007、-01.5；0、0.5不算
+     *
+     * @param value 数字
+     * @return
+     */
+    private static boolean hasLeadingZero(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (start + 1 >= value.length() || value.charAt(start) != '0') {
+            return false;
+        }
+        char next = value.charAt(start + 1);
+        return next >= '0' && next <= '9';
+    }
+
+    private static ExcelSchema.ColumnSchema column(int columnIndex, String name, ExcelColumnTypeEnum type, String datePattern,
+                                                   boolean nullable, int matchCount, int nonNullCount) {
+        return new ExcelSchema.ColumnSchema(columnIndex, name, type, datePattern, nullable, (double) matchCount / nonNullCount);
+    }
+
+    private List<String[]> firstRows(AbstractExcel<?> excel, int sheetIndex, int startRowIndex) {
+        List<String[]> samples = new ArrayList<>();
+        excel.forEachRow(sheetIndex, startRowIndex, startRowIndex + sampleRowCount - 1, row -> {
+            if (!row.isNullRow()) {
+                samples.add(readRow(row));
+            }
+        });
+        return samples;
+    }
+
+    /**
+     * 蓄水池抽样：前sampleRowCount行直接放入样本，之后的第n行以sampleRowCount/n的概率替换样本中随机的一行
+     */
+    private List<String[]> reservoirSample(AbstractExcel<?> excel, int sheetIndex, int startRowIndex) {
+        List<String[]> samples = new ArrayList<>();
+        Random random = new Random(randomSeed);
+        long[] seen = new long[1];
+        excel.forEachRow(sheetIndex, startRowIndex, row -> {
+            if (row.isNullRow()) {
+                return;
+            }
+            long n = ++seen[0];
+            if (samples.size() < sampleRowCount) {
+                samples.add(readRow(row));
+                return;
+            }
+            long j = (long) (random.nextDouble() * n);
+            if (j < sampleRowCount) {
+                //只有被抽中的行才读取
+                samples.set((int) j, readRow(row));
+            }
+        });
+        return samples;
+    }
+
+    private static String[] readRow(ExcelRow row) {
+        String[] values = new String[Math.max(row.getColumnCount(), 0)];
+        for (int c = 0; c < values.length; c++) {
+            values[c] = row.read(c);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,275 @@
+package com.jzy.office.excel;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName ExcelSnapshot
+ * @Author JinZhiyun
+ * @Description 表格的只读快照。创建时把所有sheet的单元格值一次读出，之后不再持有POI对象，可以被任意多个线程同时读取，
+ * 不需要加锁，适合在多个请求间共用一份价目表、座位表这类参考表格。
+ * <p>
+ * 读取的结果与创建快照时从源表格读取的结果相同，之后对源表格的修改不会反映到快照中。所有修改表格的方法抛出
+ * {@link UnsupportedOperationException}。相同的单元格值在快照中只保存一份
+ * @Date 2021/3/2 18:10
+ * @Version 1.0
+ **/
+public class ExcelSnapshot extends AbstractExcel<Closeable> {
+    private static final long serialVersionUID = -3106250924312207585L;
+
+    private final String[] sheetNames;
+
+    /**
+     * 各sheet各行的单元格值，为空的行为null，行内为空的单元格为null
+     */
+    private final String[][][] sheets;
+
+    /**
+     * 读出源表格的所有sheet，创建快照。创建时源表格不能被其他线程修改
+     *
+     * @param excel 源表格
+     */
+    public ExcelSnapshot(AbstractExcel<?> excel) {
+        this.version = excel.getVersion();
+        this.inputFilePath = excel.getInputFilePath();
+        int sheetCount = excel.getSheetCount();
+        this.sheetNames = new String[sheetCount];
+        this.sheets = new String[sheetCount][][];
+        Map<String, String> values = new HashMap<>();
+        for (int s = 0; s < sheetCount; s++) {
+            sheetNames[s] = excel.getSheetName(s);
+            String[][] rows = new String[excel.getRowCount(s)][];
+            excel.forEachRow(s, 0, row -> {
+                if (row.isNullRow()) {
+                    return;
+                }
+                String[] cells = new String[Math.max(row.getColumnCount(), 0)];
+                for (int c = 0; c < cells.length; c++) {
+                    String value = row.read(c);
+                    if (value != null) {
+                        String existing = values.putIfAbsent(value, value);
+                        cells[c] = existing == null ? value : existing;
+                    }
+                }
+                rows[row.getRowIndex()] = cells;
+            });
+            sheets[s] = rows;
+        }
+    }
+
+    /**
+     * 快照不持有工作簿和输出流，不需要关闭
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void save() {
+        throw readOnly();
+    }
+
+    @Override
+    public void save(String outputPath) {
+        throw readOnly();
+    }
+
+    @Override
+    public void save(OutputStream outputStream) {
+        throw readOnly();
+    }
+
+    @Override
+    public int getSheetCount() {
+        return sheets.length;
+    }
+
+    @Override
+    public int getRowCount(int sheetIndex) {
+        return sheets[sheetIndex].length;
+    }
+
+    @Override
+    public int getColumnCount(int sheetIndex, int rowIndex) {
+        String[] row = getRow(sheetIndex, rowIndex);
+        return row == null || row.length == 0 ? -1 : row.length;
+    }
+
+    @Override
+    public int getSheetIndex(String name) {
+        for (int i = 0; i < sheetNames.length; i++) {
+            if (sheetNames[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getSheetName(int sheetIndex) {
+        return sheetNames[sheetIndex];
+    }
+
+    @Override
+    public boolean isNullCell(int sheetIndex, int rowIndex, int colIndex) {
+        return read(sheetIndex, rowIndex, colIndex) == null;
+    }
+
+    @Override
+    public boolean isNullRow(int sheetIndex, int rowIndex) {
+        return getRow(sheetIndex, rowIndex) == null;
+    }
+
+    @Override
+    public List<String> readRow(int sheetIndex, int rowIndex, int startColumnIndex, int endColumnIndex) {
+        String[] row = getRow(sheetIndex, rowIndex);
+        if (row == null) {
+            //与CommonExcel一致，空行读出一个null
+            return new ArrayList<>(Arrays.asList((String) null));
+        }
+        List<String> list = new ArrayList<>();
+        for (int i = startColumnIndex; i <= endColumnIndex && i < row.length; i++) {
+            list.add(row[i]);
+        }
+        return list;
+    }
+
+    @Override
+    public String read(int sheetIndex, int rowIndex, int colIndex) {
+        String[] row = getRow(sheetIndex, rowIndex);
+        return row == null || colIndex < 0 || colIndex >= row.length ? null : row[colIndex];
+    }
+
+    @Override
+    public List<String> readColumn(int sheetIndex, int startRowIndex, int endRowIndex, int colIndex) {
+        String[][] rows = sheets[sheetIndex];
+        List<String> list = new ArrayList<>();
+        for (int i = startRowIndex; i <= endRowIndex && i < rows.length; i++) {
+            list.add(read(sheetIndex, i, colIndex));
+        }
+        return list;
+    }
+
+    /**
+     * 逐行遍历sheet。每次遍历使用自己的行对象，多个线程可以同时遍历；行对象不能写入
+     *
+     * @param sheetIndex    指定 Sheet 页，从 0 开始
+     * @param startRowIndex 起始行（含）
+     * @param endRowIndex   结束行（含）
+     * @param handler       每一行的回调
+     */
+    @Override
+    public void forEachRow(int sheetIndex, int startRowIndex, int endRowIndex, ExcelRowHandler handler) {
+        String[][] rows = sheets[sheetIndex];
+        SnapshotRow row = new SnapshotRow(sheetIndex);
+        for (int i = Math.max(startRowIndex, 0); i <= endRowIndex && i < rows.length; i++) {
+            row.rowIndex = i;
+            row.cells = rows[i];
+            handler.handle(row);
+        }
+    }
+
+    private String[] getRow(int sheetIndex, int rowIndex) {
+        String[][] rows = sheets[sheetIndex];
+        return rowIndex < 0 || rowIndex >= rows.length ? null : rows[rowIndex];
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("表格快照是只读的");
+    }
+
+    @Override
+    public boolean setSheetName(int sheetIndex, String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSheetOrder(String sheetName, int sheetIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean clearSheet(int sheetIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean removeSheetAt(int sheetIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean removeRow(int sheetIndex, int rowIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean removeRows(int sheetIndex, int[] rowIndexes) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean createCell(int sheetIndex, int rowIndex, int colIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean createRow(int sheetIndex, int rowIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean write(int sheetIndex, int rowIndex, int colIndex, String value) {
+        throw readOnly();
+    }
+
+    /**
+     * 快照中的行，直接持有该行的单元格值
+     */
+    private static class SnapshotRow implements ExcelRow {
+        private int sheetIndex;
+
+        private int rowIndex;
+
+        private String[] cells;
+
+        SnapshotRow(int sheetIndex) {
+            this.sheetIndex = sheetIndex;
+        }
+
+        @Override
+        public int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        @Override
+        public boolean isNullRow() {
+            return cells == null;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return cells == null || cells.length == 0 ? -1 : cells.length;
+        }
+
+        @Override
+        public String read(int colIndex) {
+            return cells == null || colIndex < 0 || colIndex >= cells.length ? null : cells[colIndex];
+        }
+
+        @Override
+        public boolean write(int colIndex, String value) {
+            throw readOnly();
+        }
+    }
+}
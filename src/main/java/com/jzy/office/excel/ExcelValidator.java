@@ -0,0 +1,510 @@
+package com.jzy.office.excel;
+
+import com.jzy.office.exception.ExcelColumnNotFoundException;
+import com.jzy.util.MyTimeUtils;
+import com.jzy.util.MyValidateUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * @ClassName ExcelValidator
+ * @Author JinZhiyun
+ * @Description 按列声明的单元格校验规则（类型、范围、正则、身份证/手机号/邮箱、唯一等），遍历一次sheet检查所有单元格。
+ * <p>
+ * 规则在创建时编译好（正则只编译一次，类型解码器只创建一次），校验时不合法的单元格作为错误收集，
+ * 最多记录{@link #maxErrors}个，之后只计数，不会在第一个错误处抛出异常。开启{@link #parallel}时按行块读取，
+ * 各行块的规则检查并行执行；唯一性需要看到之前所有的行，在读取时顺序检查。错误始终按行、列的顺序排列
+ * @Date 2021/3/2 10:20
+ * @Version 1.0
+ **/
+@Getter
+@Setter
+public class ExcelValidator {
+    /**
+     * 表头所在行，小于0时没有表头，只能用列索引指定列。数据从表头的下一行开始
+     */
+    private int headerRowIndex;
+
+    /**
+     * 最多记录的错误个数，超过后只计数
+     */
+    private int maxErrors = 100;
+
+    /**
+     * 是否并行检查各行块
+     */
+    private boolean parallel;
+
+    /**
+     * 并行检查时每个行块的行数
+     */
+    private int blockSize = 4096;
+
+    /**
+     * 各列的规则，列名或列索引→规则，按添加的顺序检查
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<Object, List<Rule>> columnRules = new LinkedHashMap<>();
+
+    /**
+     * 为表头中指定名称的列添加规则
+     *
+     * @param name  列名
+     * @param rules 规则
+     * @return 当前对象
+     */
+    public ExcelValidator column(String name, Rule... rules) {
+        return addRules(name, rules);
+    }
+
+    /**
+     * 为指定索引的列添加规则
+     *
+     * @param columnIndex 列索引，从0开始
+     * @param rules       规则
+     * @return 当前对象
+     */
+    public ExcelValidator column(int columnIndex, Rule... rules) {
+        return addRules(columnIndex, rules);
+    }
+
+    private ExcelValidator addRules(Object column, Rule[] rules) {
+        columnRules.computeIfAbsent(column, c -> new ArrayList<>()).addAll(Arrays.asList(rules));
+        return this;
+    }
+
+    /**
+     * 校验sheet中从数据开始行到最后一行的单元格，为空的行跳过
+     *
+     * @param excel      excel对象
+     * @param sheetIndex 指定 Sheet 页，从 0 开始
+     * @return 校验结果，包括校验的行数和错误
+     * @throws ExcelColumnNotFoundException 表头中没有规则指定的列
+     */
+    public ValidationResult validate(AbstractExcel<?> excel, int sheetIndex) throws ExcelColumnNotFoundException {
+        CompiledColumn[] columns = compile(excel, sheetIndex);
+        ValidationResult result = new ValidationResult();
+        //按读取顺序排列的、正在检查的行块，数量有上限，读取不会远远超前于检查
+        Deque<CompletableFuture<Block>> pending = new ArrayDeque<>();
+        int maxPending = Runtime.getRuntime().availableProcessors() * 2;
+        int size = parallel ? Math.max(blockSize, 1) : 1;
+        Block[] block = {new Block(size, columns.length)};
+        excel.forEachRow(sheetIndex, headerRowIndex + 1, row -> {
+            if (row.isNullRow()) {
+                return;
+            }
+            block[0].add(row, columns);
+            result.rowCount++;
+            if (block[0].rowCount < size) {
+                return;
+            }
+            if (parallel) {
+                Block full = block[0];
+                pending.add(CompletableFuture.supplyAsync(() -> full.check(columns, maxErrors)));
+                while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isDone())) {
+                    result.merge(maxErrors, pending.poll().join());
+                }
+                block[0] = new Block(size, columns.length);
+            } else {
+                //顺序检查时行块只有一行，检查完重复使用
+                result.merge(maxErrors, block[0].check(columns, maxErrors));
+            }
+        });
+        while (!pending.isEmpty()) {
+            result.merge(maxErrors, pending.poll().join());
+        }
+        if (block[0].rowCount > 0) {
+            result.merge(maxErrors, block[0].check(columns, maxErrors));
+        }
+        return result;
+    }
+
+    private CompiledColumn[] compile(AbstractExcel<?> excel, int sheetIndex) throws ExcelColumnNotFoundException {
+        List<String> header = headerRowIndex < 0 ? Collections.emptyList() : excel.readRow(sheetIndex, headerRowIndex);
+        CompiledColumn[] columns = new CompiledColumn[columnRules.size()];
+        int i = 0;
+        for (Map.Entry<Object, List<Rule>> entry : columnRules.entrySet()) {
+            Object column = entry.getKey();
+            int columnIndex;
+            String name;
+            if (column instanceof Integer) {
+                columnIndex = (Integer) column;
+                name = columnIndex < header.size() ? header.get(columnIndex) : null;
+            } else {
+                columnIndex = header.indexOf(column);
+                if (columnIndex < 0) {
+                    throw new ExcelColumnNotFoundException("第" + (sheetIndex + 1) + "张sheet的表头中没有该列", (String) column);
+                }
+                name = (String) column;
+            }
+            columns[i++] = new CompiledColumn(columnIndex, name, entry.getValue());
+        }
+        return columns;
+    }
+
+    /**
+     * 一列的规则，以及唯一规则已出现过的值
+     */
+    private static class CompiledColumn {
+        private int columnIndex;
+
+        private String name;
+
+        private Rule[] rules;
+
+        /**
+         * 值→第一次出现的行，有唯一规则时才有
+         */
+        private Map<String, Integer> firstRows;
+
+        CompiledColumn(int columnIndex, String name, List<Rule> rules) {
+            this.columnIndex = columnIndex;
+            this.name = name;
+            this.rules = rules.toArray(new Rule[0]);
+            for (Rule rule : this.rules) {
+                if (rule.unique) {
+                    firstRows = new HashMap<>();
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取好的一块行。唯一规则在读取时检查，记录每个单元格的值第一次出现的行
+     */
+    private static class Block {
+        private int[] rowIndexes;
+
+        /**
+         * 各行各列的值，按行排列
+         */
+        private String[] values;
+
+        /**
+         * 与之重复的第一行，不重复时为-1
+         */
+        private int[] firstRows;
+
+        private int rowCount;
+
+        /**
+         * 检查得到的错误，最多maxErrors个
+         */
+        private List<ValidationError> errors = new ArrayList<>();
+
+        private long errorCount;
+
+        Block(int size, int columnCount) {
+            rowIndexes = new int[size];
+            values = new String[size * columnCount];
+            firstRows = new int[size * columnCount];
+        }
+
+        void add(ExcelRow row, CompiledColumn[] columns) {
+            rowIndexes[rowCount] = row.getRowIndex();
+            for (int c = 0; c < columns.length; c++) {
+                int i = rowCount * columns.length + c;
+                String value = row.read(columns[c].columnIndex);
+                values[i] = value;
+                firstRows[i] = -1;
+                if (columns[c].firstRows != null && value != null && !value.isEmpty()) {
+                    Integer firstRow = columns[c].firstRows.putIfAbsent(value, row.getRowIndex());
+                    if (firstRow != null) {
+                        firstRows[i] = firstRow;
+                    }
+                }
+            }
+            rowCount++;
+        }
+
+        /**
+         * 按行、列、规则的顺序检查，每个单元格只报告第一个不满足的规则
+         *
+         * @param columns   各列的规则
+         * @param maxErrors 最多记录的错误个数，多出的错误只需要个数
+         * @return 当前行块，错误在errors和errorCount中。检查后行块清空，可以重新读入
+         */
+        Block check(CompiledColumn[] columns, int maxErrors) {
+            errors.clear();
+            errorCount = 0;
+            for (int r = 0; r < rowCount; r++) {
+                for (int c = 0; c < columns.length; c++) {
+                    int i = r * columns.length + c;
+                    String value = values[i];
+                    boolean empty = value == null || value.isEmpty();
+                    for (Rule rule : columns[c].rules) {
+                        String message = null;
+                        if (rule.unique) {
+                            if (firstRows[i] >= 0) {
+                                message = "与第" + (firstRows[i] + 1) + "行重复";
+                            }
+                        } else if ((!empty || rule.checkEmpty) && !rule.predicate.test(value)) {
+                            message = rule.message;
+                        }
+                        if (message != null) {
+                            if (errors.size() < maxErrors) {
+                                errors.add(new ValidationError(rowIndexes[r], columns[c].columnIndex, columns[c].name, value, message));
+                            }
+                            errorCount++;
+                            break;
+                        }
+                    }
+                }
+            }
+            rowCount = 0;
+            return this;
+        }
+    }
+
+    /**
+     * 单元格的校验规则，由静态方法创建，创建后可以在多个校验器、多个线程间共用。
+     * 除{@link #required()}外，规则只检查非空的单元格
+     */
+    public static class Rule {
+        private String message;
+
+        private Predicate<String> predicate;
+
+        /**
+         * 是否也检查空值
+         */
+        private boolean checkEmpty;
+
+        /**
+         * 是否为唯一规则
+         */
+        private boolean unique;
+
+        private Rule(String message, Predicate<String> predicate, boolean checkEmpty, boolean unique) {
+            this.message = message;
+            this.predicate = predicate;
+            this.checkEmpty = checkEmpty;
+            this.unique = unique;
+        }
+
+        /**
+         * 自定义规则
+         *
+         * @param message   不满足时的错误描述
+         * @param predicate 检查非空值，返回是否合法。多线程校验时需要是线程安全的
+         * @return
+         */
+        public static Rule of(String message, Predicate<String> predicate) {
+            return new Rule(message, predicate, false, false);
+        }
+
+        /**
+         * 不能为空
+         *
+         * @return
+         */
+        public static Rule required() {
+            return new Rule("不能为空", value -> value != null && !value.isEmpty(), true, false);
+        }
+
+        /**
+         * 列内的值不能重复
+         *
+         * @return
+         */
+        public static Rule unique() {
+            return new Rule("不能重复", null, false, true);
+        }
+
+        /**
+         * 符合列类型，日期类型使用{@link #date(String)}
+         *
+         * @param type 列类型
+         * @return
+         */
+        public static Rule type(ExcelColumnTypeEnum type) {
+            ExcelSchema.ColumnSchema column = new ExcelSchema.ColumnSchema(-1, null, type, null, true, 1);
+            return of("不是" + type, value -> column.decode(value) != null);
+        }
+
+        /**
+         * 符合日期格式之一。一列的值通常是同一种格式，校验时先尝试这一列上次符合的格式
+         *
+         * @param patterns 日期格式
+         * @return
+         */
+        public static Rule date(String... patterns) {
+            MyTimeUtils.MultiPatternDateParser parser = new MyTimeUtils.MultiPatternDateParser(patterns);
+            return of("不符合日期格式" + String.join("或", patterns), value -> parser.parse(value) != null);
+        }
+
+        /**
+         * 是数字且在[min, max]之间
+         *
+         * @param min 最小值（含）
+         * @param max 最大值（含）
+         * @return
+         */
+        public static Rule range(double min, double max) {
+            return of("不是" + format(min) + "到" + format(max) + "之间的数", value -> {
+                double number = CellValues.parseNumber(value);
+                return number >= min && number <= max;
+            });
+        }
+
+        private static String format(double number) {
+            return number == (long) number ? String.valueOf((long) number) : String.valueOf(number);
+        }
+
+        /**
+         * 长度在[min, max]之间
+         *
+         * @param min 最小长度（含）
+         * @param max 最大长度（含）
+         * @return
+         */
+        public static Rule length(int min, int max) {
+            return of("长度不在" + min + "到" + max + "之间", value -> value.length() >= min && value.length() <= max);
+        }
+
+        /**
+         * 完整匹配正则表达式，正则只编译一次
+         *
+         * @param regex 正则表达式
+         * @return
+         */
+        public static Rule regex(String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            return of("不符合格式" + regex, value -> pattern.matcher(value).matches());
+        }
+
+        /**
+         * 是给定的值之一
+         *
+         * @param values 合法的值
+         * @return
+         */
+        public static Rule oneOf(String... values) {
+            Set<String> set = new HashSet<>(Arrays.asList(values));
+            return of("不是" + set + "之一", set::contains);
+        }
+
+        /**
+         * 是合法的15位或18位身份证号
+         *
+         * @return
+         */
+        public static Rule idCard() {
+            return of("不是合法的身份证号", MyValidateUtils::isIdCard);
+        }
+
+        /**
+         * 是合法的手机号
+         *
+         * @return
+         */
+        public static Rule phone() {
+            return of("不是合法的手机号", MyValidateUtils::isPhone);
+        }
+
+        /**
+         * 是合法的邮箱
+         *
+         * @return
+         */
+        public static Rule email() {
+            return of("不是合法的邮箱", MyValidateUtils::isEmail);
+        }
+
+        /**
+         * 是合法的IPv4或IPv6地址
+         *
+         * @return
+         */
+        public static Rule ipAddress() {
+            return of("不是合法的IP地址", MyValidateUtils::isIpAddress);
+        }
+    }
+
+    /**
+     * 校验结果
+     */
+    @Getter
+    public static class ValidationResult {
+        /**
+         * 校验的行数
+         */
+        private long rowCount;
+
+        /**
+         * 不合法的单元格个数
+         */
+        private long errorCount;
+
+        /**
+         * 记录的错误，最多maxErrors个，按行、列排列
+         */
+        private List<ValidationError> errors = new ArrayList<>();
+
+        private void merge(int maxErrors, Block block) {
+            for (ValidationError error : block.errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(error);
+                }
+            }
+            errorCount += block.errorCount;
+        }
+
+        /**
+         * 所有单元格是否都合法
+         *
+         * @return
+         */
+        public boolean isValid() {
+            return errorCount == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "校验行数：" + rowCount + "，错误数：" + errorCount + (errors.isEmpty() ? "" : "，" + errors);
+        }
+    }
+
+    /**
+     * 不合法的单元格
+     */
+    @Getter
+    public static class ValidationError {
+        private int rowIndex;
+
+        private int columnIndex;
+
+        /**
+         * 表头中的列名，没有表头时为null
+         */
+        private String columnName;
+
+        private String value;
+
+        /**
+         * 不满足的规则的描述
+         */
+        private String message;
+
+        ValidationError(int rowIndex, int columnIndex, String columnName, String value, String message) {
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.columnName = columnName;
+            this.value = value;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "第" + (rowIndex + 1) + "行" + (columnName == null ? "第" + (columnIndex + 1) + "列" : columnName)
+                    + "的值" + value + message;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.jzy.office.excel;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * @ClassName FingerprintTable
+ * @Author JinZhiyun
+ * @Description 64位指纹→行索引的开放寻址哈希表，同一指纹可以对应多行。只存放long和int，不保存行的内容，
+ * 几十万行也只占用几MB内存。指纹相同的行在查找时由调用方再做确认
+ * @Date 2021/2/28 14:30
+ * @Version 1.0
+ **/
+class FingerprintTable {
+    /**
+     * 表示空位
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * FNV-1a哈希的初始值
+     */
+    static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private long[] fingerprints;
+
+    /**
+     * 行索引，EMPTY表示空位
+     */
+    private int[] rows;
+
+    private int size;
+
+    FingerprintTable() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize 预计存放的行数
+     */
+    FingerprintTable(int expectedSize) {
+        int capacity = 16;
+        while (capacity >> 1 < expectedSize && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        fingerprints = new long[capacity];
+        rows = newRows(capacity);
+    }
+
+    private static int[] newRows(int capacity) {
+        int[] rows = new int[capacity];
+        Arrays.fill(rows, EMPTY);
+        return rows;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 加入一行，不检查是否已经存在相同的指纹
+     *
+     * @param fingerprint 指纹
+     * @param row         行索引
+     */
+    void add(long fingerprint, int row) {
+        int mask = fingerprints.length - 1;
+        int i = index(fingerprint) & mask;
+        while (rows[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        fingerprints[i] = fingerprint;
+        rows[i] = row;
+        if (++size > fingerprints.length >> 1) {
+            //装载因子不超过0.5
+            resize();
+        }
+    }
+
+    /**
+     * 按加入的顺序查找指纹相同且被accept接受的第一行
+     *
+     * @param fingerprint 指纹
+     * @param accept      确认函数，输入行索引
+     * @return 行索引，没有时返回-1
+     */
+    int find(long fingerprint, IntPredicate accept) {
+        int mask = fingerprints.length - 1;
+        for (int i = index(fingerprint) & mask; rows[i] != EMPTY; i = (i + 1) & mask) {
+            if (fingerprints[i] == fingerprint && accept.test(rows[i])) {
+                return rows[i];
+            }
+        }
+        return EMPTY;
+    }
+
+    private void resize() {
+        long[] oldFingerprints = fingerprints;
+        int[] oldRows = rows;
+        fingerprints = new long[oldFingerprints.length << 1];
+        rows = newRows(oldFingerprints.length << 1);
+        int mask = fingerprints.length - 1;
+        //按原来的探测顺序重新插入，同一指纹的各行保持加入的顺序
+        int start = 0;
+        while (oldRows[start] != EMPTY) {
+            start++;
+        }
+        for (int k = 1; k <= oldFingerprints.length; k++) {
+            int j = (start + k) & (oldFingerprints.length - 1);
+            if (oldRows[j] != EMPTY) {
+                int i = index(oldFingerprints[j]) & mask;
+                while (rows[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                fingerprints[i] = oldFingerprints[j];
+                rows[i] = oldRows[j];
+            }
+        }
+    }
+
+    private static int index(long fingerprint) {
+        long h = fingerprint * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 字符串的64位FNV-1a哈希
+     *
+     * @param value 字符串
+     * @return
+     */
+    static long hash(CharSequence value) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            h = hash(h, value.charAt(i));
+        }
+        return h;
+    }
+
+    /**
+     * 将一个字符并入FNV-1a哈希，可以用来对规范化后的字符串求哈希而不创建新的字符串
+     *
+     * @param h 当前哈希，初始为{@link #FNV_OFFSET_BASIS}
+     * @param c 字符
+     * @return
+     */
+    static long hash(long h, char c) {
+        return (h ^ c) * FNV_PRIME;
+    }
+
+    /**
+     * 将一个值并入指纹
+     *
+     * @param fingerprint 当前指纹
+     * @param value       值的哈希
+     * @return
+     */
+    static long combine(long fingerprint, long value) {
+        long h = (fingerprint ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,109 @@
+package com.jzy.office.excel;
+
+/**
+ * @ClassName HyperLogLog
+ * @Author JinZhiyun
+ * @Description 估计不同值个数的HyperLogLog草图。2^precision个寄存器各占一个字节，默认精度12时只占4KB，
+ * 标准误差约为1.04/sqrt(2^precision)，即1.6%；不同值较少时改用线性计数以减小偏差，结果仍是估计值
+ * @Date 2021/3/1 14:00
+ * @Version 1.0
+ **/
+class HyperLogLog {
+    private int precision;
+
+    private byte[] registers;
+
+    /**
+     * @param precision 精度，4到16，寄存器个数为2^precision
+     */
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("精度必须在4到16之间：" + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 加入一个值
+     *
+     * @param value 值
+     */
+    void add(CharSequence value) {
+        addHash(mix(FingerprintTable.hash(value)));
+    }
+
+    /**
+     * 加入一个值的64位哈希，哈希的各位应当均匀分布
+     *
+     * @param hash 哈希
+     */
+    void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        //剩余的位中第一个1的位置，全为0时取最大值
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * 估计的不同值个数
+     *
+     * @return
+     */
+    long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            //小范围修正：线性计数
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 估计值的相对标准误差
+     *
+     * @return
+     */
+    double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * MurmurHash3的64位最终混合，使FNV哈希的高位也均匀分布
+     *
+     * @param h 哈希
+     * @return
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
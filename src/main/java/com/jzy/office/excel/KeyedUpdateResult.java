@@ -0,0 +1,47 @@
+package com.jzy.office.excel;
+
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * @ClassName KeyedUpdateResult
+ * @Author JinZhiyun
+ * @Description 按关键字列更新的结果，参见{@link AbstractExcel#updateColumnByKey(int, int, int, int, Map)}
+ * @Date 2021/2/27 10:20
+ * @Version 1.0
+ **/
+@Getter
+public class KeyedUpdateResult {
+    /**
+     * 被更新的行数
+     */
+    private int updatedRowCount;
+
+    /**
+     * sheet中有、但没有对应值的关键字，按行的顺序
+     */
+    private List<String> unmatchedKeys = new ArrayList<>();
+
+    /**
+     * 值集合中有、但sheet中没有出现的关键字。由函数提供值时为空
+     */
+    private Set<String> unusedKeys = new LinkedHashSet<>();
+
+    void rowUpdated() {
+        updatedRowCount++;
+    }
+
+    void keyUnmatched(String key) {
+        unmatchedKeys.add(key);
+    }
+
+    void setUnusedKeys(Set<String> unusedKeys) {
+        this.unusedKeys = unusedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "更新行数：" + updatedRowCount + "，没有对应值的关键字：" + unmatchedKeys + "，sheet中没有出现的关键字：" + unusedKeys;
+    }
+}
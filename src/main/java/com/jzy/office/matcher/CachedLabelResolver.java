@@ -0,0 +1,51 @@
+package com.jzy.office.matcher;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @ClassName CachedLabelResolver
+ * @Author JinZhiyun
+ * @Description 带缓存的标签值解析器。同一个标签只会调用一次被包装的解析器求值（包括求值结果为null的情况），
+ * 一般在替换一整个文档时使用，文档中同一标签多次出现时不会重复求值
+ * @Date 2021/2/21 10:32
+ * @Version 1.0
+ **/
+public class CachedLabelResolver implements LabelResolver {
+    /**
+     * 被包装的解析器
+     */
+    private LabelResolver resolver;
+
+    /**
+     * 已求值的标签
+     */
+    private Map<String, String> cache = new HashMap<>();
+
+    public CachedLabelResolver(LabelResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * 如果resolver已经是带缓存的解析器直接返回，否则包装一层缓存
+     *
+     * @param resolver 标签值解析器
+     * @return 带缓存的标签值解析器
+     */
+    public static CachedLabelResolver of(LabelResolver resolver) {
+        if (resolver instanceof CachedLabelResolver) {
+            return (CachedLabelResolver) resolver;
+        }
+        return new CachedLabelResolver(resolver);
+    }
+
+    @Override
+    public String resolve(String label) {
+        if (cache.containsKey(label)) {
+            return cache.get(label);
+        }
+        String value = resolver.resolve(label);
+        cache.put(label, value);
+        return value;
+    }
+}
@@ -1,6 +1,8 @@
 package com.jzy.office.matcher;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 
 /**
@@ -24,6 +26,7 @@ public abstract class LabelMatcher extends StringMatcher {
      * 如果字串中的标签bookmark中没有，将当前标签替换成空串
      * 如果bookmark中的标签当前字串中没有，不做任何处理
      * 返回在bookmark和target中共有的被正确替换掉的标签集合，以及最终替换结果（最终结果的键为{@link LabelMatcher#OUTPUT}）
+     * 替换只从前往后扫描target一遍，替换值按字面值写入（值中的$、\不会被当作正则替换语法），替换进去的值也不会被再次匹配
      * <p>
      * 例子❶：如当前匹配标签为：${标签1}。替换中指定的字符串中的“${label1}”
      * LabelMatcher matcher= LabelMatchers.DEFAULT_LABEL_MATCHER;
@@ -44,23 +47,62 @@ public abstract class LabelMatcher extends StringMatcher {
         if (bookmark == null || bookmark.size() == 0) {
             return replacedBookmarkWithOutput;
         }
-        Matcher matcher;
-        while ((matcher = getMatcher(target)).find()) {
+        String output = replaceAllLabels(target, LabelResolver.of(bookmark), replacedBookmarkWithOutput);
+        //添加整体替换后的结果
+        replacedBookmarkWithOutput.put(OUTPUT, output);
+        return replacedBookmarkWithOutput;
+    }
+
+    /**
+     * 使用标签值解析器替换target中的所有标签，只有target中实际出现的标签才会调用解析器求值。
+     * 解析器返回null的标签替换成空串，且不记入replacedBookmark
+     * 替换只从前往后扫描target一遍，替换值按字面值写入，替换进去的值也不会被再次匹配
+     *
+     * @param target           目标字串
+     * @param resolver         标签值解析器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     * @return 替换后的字符串。target中没有标签时直接返回target本身
+     */
+    public String replaceAllLabels(String target, LabelResolver resolver, Map<String, String> replacedBookmark) {
+        Matcher matcher = getMatcher(target);
+        if (!matcher.find()) {
+            return target;
+        }
+        //从前往后一次扫描，将未匹配部分与替换值依次追加到同一个StringBuilder中
+        StringBuilder output = new StringBuilder(target.length());
+        int last = 0;
+        do {
+            //追加上一个标签结束到当前标签开始之间的原文
+            output.append(target, last, matcher.start());
+            last = matcher.end();
             //依次获得${labelKey}中的labelKey
             String labelKey = matcher.group(1);
-            if (bookmark.containsKey(labelKey)) {
-                //书签集中有当前找到的labelKey
-                String replacement = bookmark.get(labelKey);
-                //将当前${labelKey}替换为replacement
-                target = matcher.replaceFirst(replacement);
-                //添加到成功替换的labelKey集合
-                replacedBookmarkWithOutput.put(labelKey, replacement);
-            } else {
-                target = matcher.replaceFirst("");
+            String replacement = resolver.resolve(labelKey);
+            if (replacement != null) {
+                //按字面值追加replacement，不解析其中的$、\等正则替换语法
+                output.append(replacement);
+                if (replacedBookmark != null) {
+                    //添加到成功替换的labelKey集合
+                    replacedBookmark.put(labelKey, replacement);
+                }
             }
+            //没有当前labelKey的值，则当前${labelKey}替换为空串，即什么也不追加
+        } while (matcher.find());
+        //追加最后一个标签之后的原文
+        output.append(target, last, target.length());
+        return output.toString();
+    }
+
+    /**
+     * 找到target中出现的所有标签，添加到labels中
+     *
+     * @param target 目标字串
+     * @param labels 存放找到的标签
+     */
+    public void findLabels(String target, Collection<String> labels) {
+        Matcher matcher = getMatcher(target);
+        while (matcher.find()) {
+            labels.add(matcher.group(1));
         }
-        //添加整体替换后的结果
-        replacedBookmarkWithOutput.put(OUTPUT, target);
-        return replacedBookmarkWithOutput;
     }
 }
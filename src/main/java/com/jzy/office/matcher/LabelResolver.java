@@ -0,0 +1,32 @@
+package com.jzy.office.matcher;
+
+import java.util.Map;
+
+/**
+ * @InterfaceName LabelResolver
+ * @Author JinZhiyun
+ * @Description 标签值解析器。与预先准备好所有值的书签集不同，只有文本中实际出现的标签才会调用resolve求值，
+ * 适用于部分标签的值需要查数据库等代价较高的场景
+ * @Date 2021/2/21 10:15
+ * @Version 1.0
+ **/
+@FunctionalInterface
+public interface LabelResolver {
+    /**
+     * 返回标签对应的替换值
+     *
+     * @param label 标签，如${label1}中的label1
+     * @return 替换值。返回null表示没有该标签的值，该标签将被替换成空串
+     */
+    String resolve(String label);
+
+    /**
+     * 由书签集构造标签值解析器
+     *
+     * @param bookmark 书签集
+     * @return 标签值解析器
+     */
+    static LabelResolver of(Map<String, String> bookmark) {
+        return bookmark::get;
+    }
+}
@@ -1,8 +1,10 @@
 package com.jzy.office.word;
 
 import com.jzy.office.exception.InvalidFileTypeException;
+import com.jzy.office.matcher.CachedLabelResolver;
 import com.jzy.office.matcher.LabelMatcher;
 import com.jzy.office.matcher.LabelMatchers;
+import com.jzy.office.matcher.LabelResolver;
 import lombok.ToString;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.xwpf.usermodel.*;
@@ -10,9 +12,7 @@ import org.apache.poi.xwpf.usermodel.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 
 /**
  * @ClassName DefaultWord2007
@@ -42,6 +42,62 @@ public class DefaultWord2007 extends Word2007 {
         super(document);
     }
 
+    /**
+     * 使用默认标签匹配器，将当前文档编译为可反复填充的模板。参见{@link Word2007Template}
+     *
+     * @return 编译后的模板
+     */
+    public Word2007Template compileTemplate() {
+        return compileTemplate(LabelMatchers.DEFAULT_LABEL_MATCHER);
+    }
+
+    /**
+     * 使用给定的标签匹配器，将当前文档编译为可反复填充的模板。参见{@link Word2007Template}
+     *
+     * @param lMatcher 标签匹配器
+     * @return 编译后的模板
+     */
+    public Word2007Template compileTemplate(LabelMatcher lMatcher) {
+        return new Word2007Template(this, lMatcher);
+    }
+
+    /**
+     * 使用默认标签匹配器，找到当前文档所有段落和表格中出现的标签。
+     * 可以先调用该方法得到文档实际用到的标签，只为这些标签准备替换值
+     *
+     * @return 文档中出现的所有标签，按出现的先后顺序
+     */
+    public Set<String> scanLabels() {
+        return scanLabels(LabelMatchers.DEFAULT_LABEL_MATCHER);
+    }
+
+    /**
+     * 使用给定的标签匹配器，找到当前文档所有段落和表格中出现的标签。
+     *
+     * @param lMatcher 标签匹配器
+     * @return 文档中出现的所有标签，按出现的先后顺序
+     */
+    public Set<String> scanLabels(LabelMatcher lMatcher) {
+        Set<String> labels = new LinkedHashSet<>();
+        Iterator<XWPFParagraph> iterator = document.getParagraphsIterator();
+        while (iterator.hasNext()) {
+            //遍历所有段落
+            lMatcher.findLabels(iterator.next().getParagraphText(), labels);
+        }
+        Iterator<XWPFTable> tableIterator = document.getTablesIterator();
+        while (tableIterator.hasNext()) {
+            for (XWPFTableRow row : tableIterator.next().getRows()) {
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    for (XWPFParagraph para : cell.getParagraphs()) {
+                        //遍历每个表格每行每个单元的每个段落
+                        lMatcher.findLabels(para.getParagraphText(), labels);
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
     /**
      * 使用默认标签匹配器，根据替换书签集的内容，替换当前文档所有段落和表格的对应标签。
      * 默认标签匹配器匹配标签格式为：${标签1}。参见{@link LabelMatchers#DEFAULT_LABEL_MATCHER}
@@ -60,11 +116,39 @@ public class DefaultWord2007 extends Word2007 {
      * @return 返回在bookmark和段落表格文本中共有的被正确替换掉的标签集合
      */
     public HashMap<String, String> replaceInAllUsingLabelMatcher(HashMap<String, String> bookmark, LabelMatcher lMatcher) {
-        HashMap<String, String> replacedBookmark = replaceInParasUsingLabelMatcher(bookmark, lMatcher);
-        replacedBookmark.putAll(replaceInTablesUsingLabelMatcher(bookmark, lMatcher));
+        HashMap<String, String> replacedBookmark = new HashMap<>();
+        if (bookmark == null || bookmark.size() == 0 || lMatcher == null) {
+            return replacedBookmark;
+        }
+        replaceInAllUsingLabelMatcher(LabelResolver.of(bookmark), lMatcher, replacedBookmark);
         return replacedBookmark;
     }
 
+    /**
+     * 使用默认标签匹配器，根据标签值解析器，替换当前文档所有段落和表格的对应标签。
+     * 只有文档中实际出现的标签才会求值，且同一个标签只求值一次。解析器返回null的标签替换成空串
+     *
+     * @param resolver 标签值解析器
+     */
+    public void replaceInAllUsingLabelMatcher(LabelResolver resolver) {
+        replaceInAllUsingLabelMatcher(resolver, LabelMatchers.DEFAULT_LABEL_MATCHER, null);
+    }
+
+    /**
+     * 使用给定的标签匹配器，根据标签值解析器，替换当前文档所有段落和表格的对应标签。
+     * 只有文档中实际出现的标签才会求值，且同一个标签只求值一次。解析器返回null的标签替换成空串
+     *
+     * @param resolver         标签值解析器
+     * @param lMatcher         标签匹配器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     */
+    public void replaceInAllUsingLabelMatcher(LabelResolver resolver, LabelMatcher lMatcher, Map<String, String> replacedBookmark) {
+        //整个文档共用一个带缓存的解析器
+        resolver = CachedLabelResolver.of(resolver);
+        replaceInParasUsingLabelMatcher(resolver, lMatcher, replacedBookmark);
+        replaceInTablesUsingLabelMatcher(resolver, lMatcher, replacedBookmark);
+    }
+
 
     /**
      * 使用默认标签匹配器，根据替换书签集的内容，替换当前文档所有表格的对应标签。
@@ -87,15 +171,28 @@ public class DefaultWord2007 extends Word2007 {
      */
     public HashMap<String, String> replaceInTablesUsingLabelMatcher(HashMap<String, String> bookmark, LabelMatcher lMatcher) {
         HashMap<String, String> replacedBookmark = new HashMap<>();
+        if (bookmark == null || bookmark.size() == 0 || lMatcher == null) {
+            return replacedBookmark;
+        }
+        replaceInTablesUsingLabelMatcher(LabelResolver.of(bookmark), lMatcher, replacedBookmark);
+        return replacedBookmark;
+    }
+
+    /**
+     * 根据匹配器的规则，以及标签值解析器，替换当前文档所有表格的对应标签。
+     * 只有表格中实际出现的标签才会求值，且同一个标签只求值一次
+     *
+     * @param resolver         标签值解析器
+     * @param lMatcher         标签匹配器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     */
+    public void replaceInTablesUsingLabelMatcher(LabelResolver resolver, LabelMatcher lMatcher, Map<String, String> replacedBookmark) {
+        resolver = CachedLabelResolver.of(resolver);
         Iterator<XWPFTable> iterator = document.getTablesIterator();
-        XWPFTable table;
         while (iterator.hasNext()) {
-            //遍历每个表格
-            table = iterator.next();
-            //对每个表格进行替换
-            replacedBookmark.putAll(replaceInTableUsingLabelMatcher(table, bookmark, lMatcher));
+            //遍历每个表格，对每个表格进行替换
+            replaceInTableUsingLabelMatcher(iterator.next(), resolver, lMatcher, replacedBookmark);
         }
-        return replacedBookmark;
     }
 
     public HashMap<String, String> replaceInTableUsingLabelMatcher(int pos, HashMap<String, String> bookmark, LabelMatcher lMatcher) {
@@ -140,6 +237,23 @@ public class DefaultWord2007 extends Word2007 {
         if (table == null || bookmark == null || bookmark.size() == 0 || lMatcher == null) {
             return replacedBookmark;
         }
+        replaceInTableUsingLabelMatcher(table, LabelResolver.of(bookmark), lMatcher, replacedBookmark);
+        return replacedBookmark;
+    }
+
+    /**
+     * 根据匹配器的规则，以及标签值解析器，替换当前指定表格文本的对应标签。
+     * 替换规则参见{@link DefaultWord2007#replaceInTableUsingLabelMatcher(XWPFTable, HashMap, LabelMatcher)}
+     *
+     * @param table            指定表格
+     * @param resolver         标签值解析器
+     * @param lMatcher         标签匹配器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     */
+    public void replaceInTableUsingLabelMatcher(XWPFTable table, LabelResolver resolver, LabelMatcher lMatcher, Map<String, String> replacedBookmark) {
+        if (table == null || resolver == null || lMatcher == null) {
+            return;
+        }
         List<XWPFTableRow> rows = table.getRows();
         List<XWPFTableCell> cells;
         List<XWPFParagraph> paras;
@@ -149,11 +263,10 @@ public class DefaultWord2007 extends Word2007 {
                 paras = cell.getParagraphs();
                 for (XWPFParagraph para : paras) {
                     //遍历每行每个单元的每个段落
-                    replacedBookmark.putAll(replaceInParaUsingLabelMatcher(para, bookmark, lMatcher));
+                    replaceInParaUsingLabelMatcher(para, resolver, lMatcher, replacedBookmark);
                 }
             }
         }
-        return replacedBookmark;
     }
 
     /**
@@ -176,15 +289,28 @@ public class DefaultWord2007 extends Word2007 {
      */
     public HashMap<String, String> replaceInParasUsingLabelMatcher(HashMap<String, String> bookmark, LabelMatcher lMatcher) {
         HashMap<String, String> replacedBookmark = new HashMap<>();
+        if (bookmark == null || bookmark.size() == 0 || lMatcher == null) {
+            return replacedBookmark;
+        }
+        replaceInParasUsingLabelMatcher(LabelResolver.of(bookmark), lMatcher, replacedBookmark);
+        return replacedBookmark;
+    }
+
+    /**
+     * 根据匹配器的规则，以及标签值解析器，替换当前文档所有段落文本的对应标签。
+     * 只有段落中实际出现的标签才会求值，且同一个标签只求值一次
+     *
+     * @param resolver         标签值解析器
+     * @param lMatcher         标签匹配器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     */
+    public void replaceInParasUsingLabelMatcher(LabelResolver resolver, LabelMatcher lMatcher, Map<String, String> replacedBookmark) {
+        resolver = CachedLabelResolver.of(resolver);
         Iterator<XWPFParagraph> iterator = document.getParagraphsIterator();
-        XWPFParagraph para;
         while (iterator.hasNext()) {
-            //遍历所有段落
-            para = iterator.next();
-            //对每个段落进行替换
-            replacedBookmark.putAll(replaceInParaUsingLabelMatcher(para, bookmark, lMatcher));
+            //遍历所有段落，对每个段落进行替换
+            replaceInParaUsingLabelMatcher(iterator.next(), resolver, lMatcher, replacedBookmark);
         }
-        return replacedBookmark;
     }
 
     public HashMap<String, String> replaceInParaUsingLabelMatcher(int pos, HashMap<String, String> bookmark, LabelMatcher lMatcher) {
@@ -220,6 +346,23 @@ public class DefaultWord2007 extends Word2007 {
         if (para == null || bookmark == null || bookmark.size() == 0 || lMatcher == null) {
             return replacedBookmark;
         }
+        replaceInParaUsingLabelMatcher(para, LabelResolver.of(bookmark), lMatcher, replacedBookmark);
+        return replacedBookmark;
+    }
+
+    /**
+     * 根据匹配器的规则，以及标签值解析器，替换当前指定段落文本的对应标签。
+     * 替换规则参见{@link DefaultWord2007#replaceInParaUsingLabelMatcher(XWPFParagraph, HashMap, LabelMatcher)}
+     *
+     * @param para             指定段落
+     * @param resolver         标签值解析器
+     * @param lMatcher         标签匹配器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     */
+    public void replaceInParaUsingLabelMatcher(XWPFParagraph para, LabelResolver resolver, LabelMatcher lMatcher, Map<String, String> replacedBookmark) {
+        if (para == null || resolver == null || lMatcher == null) {
+            return;
+        }
         String paraText = para.getParagraphText();
         if (lMatcher.find(paraText)) {
             //如果标签匹配器匹配到了当前段落文本
@@ -228,28 +371,22 @@ public class DefaultWord2007 extends Word2007 {
             for (int i = 0; i < runs.size(); i++) {
                 XWPFRun run = runs.get(i);
                 String runString = run.toString();
-                if (StringUtils.isNotEmpty(runString) && lMatcher.find(runString)) {
-                    //如果标签匹配器匹配到了当前run的文本，使用bookmark对其对应标签替换文本内容
-                    HashMap<String, String> replacedBookmarkWithOutput = lMatcher.replaceAllLabels(runString, bookmark);
-                    //获得替换后的文本结果
-                    String replacedText = replacedBookmarkWithOutput.get(LabelMatcher.OUTPUT);
-                    /*
-                     * 直接调用runs.get(i).setText(runText);方法设置文本时，在底层会重新创建一个XWPFRun，把文本附加在当前文本后面，
-                     * 所以我们不能直接设值，需要先删除当前run,然后再自己手动插入一个新的run。
-                     * 或者使用run.setText(runStringReplaced, 0);
-                     */
-                    //para.removeRun(i);
-                    //但用这种方式无法保持原来的文字格式
-                    //para.insertNewRun(i).setText(runText);
-                    run.setText(replacedText, 0);
-
-                    //移除替换后的文本结果，只将所有成功替换的标签集追加到输出的hashmap中
-                    replacedBookmarkWithOutput.remove(LabelMatcher.OUTPUT);
-                    replacedBookmark.putAll(replacedBookmarkWithOutput);
-
+                if (StringUtils.isNotEmpty(runString)) {
+                    //使用resolver对其对应标签替换文本内容，run中没有标签时返回的仍是runString本身
+                    String replacedText = lMatcher.replaceAllLabels(runString, resolver, replacedBookmark);
+                    if (replacedText != runString) {
+                        /*
+                         * 直接调用runs.get(i).setText(runText);方法设置文本时，在底层会重新创建一个XWPFRun，把文本附加在当前文本后面，
+                         * 所以我们不能直接设值，需要先删除当前run,然后再自己手动插入一个新的run。
+                         * 或者使用run.setText(runStringReplaced, 0);
+                         */
+                        //para.removeRun(i);
+                        //但用这种方式无法保持原来的文字格式
+                        //para.insertNewRun(i).setText(runText);
+                        run.setText(replacedText, 0);
+                    }
                 }
             }
         }
-        return replacedBookmark;
     }
 }
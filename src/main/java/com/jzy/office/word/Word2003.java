@@ -8,6 +8,7 @@ import org.apache.poi.hwpf.usermodel.*;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,15 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
     @Getter
     protected Range range;
 
+    /**
+     * 文档中所有表格的索引，第一次访问表格时才构造。参见{@link Word2003#getTables()}
+     */
+    private transient List<Table> tables;
+
+    /**
+     * 构造表格索引时文档读取范围的结束位置，用于发现索引构造后文档文本长度的变化
+     */
+    private transient int tablesEndOffset;
 
     /**
      * 由输入文件路径构造word对象
@@ -85,6 +95,7 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
      */
     public Word2003(HWPFDocument document) {
         this.document = document;
+        this.range = document.getRange();
     }
 
 
@@ -114,40 +125,78 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
         return getParagraph(pos).text();
     }
 
+    /**
+     * 返回当前文档所有段落的文本。由{@link Word2003ParagraphCursor}遍历一遍段落表，不构造段落对象
+     *
+     * @return 返回一整个字符串
+     */
     @Override
     public String readParagraphs() {
         StringBuilder s = new StringBuilder();
+        Word2003ParagraphCursor cursor = paragraphCursor();
         //读取word文本内容
-        for (int i = 0; i < getParagraphNum(); i++) {
-            s.append(readParagraph(i));
+        while (cursor.next()) {
+            cursor.appendText(s);
         }
         return s.toString();
     }
 
+    /**
+     * 返回当前文档所有段落的文本，依次装入list中。由{@link Word2003ParagraphCursor}遍历一遍段落表，不构造段落对象
+     *
+     * @return 返回所有段落的文本的list
+     */
     @Override
     public List<String> readParagraphsToList() {
-        List<String> paras = new ArrayList<>();
+        return readParagraphsToList(range);
+    }
+
+    /**
+     * 返回指定范围内所有段落的文本，依次装入list中
+     *
+     * @param range 指定范围
+     * @return 返回所有段落的文本的list
+     */
+    private List<String> readParagraphsToList(Range range) {
+        Word2003ParagraphCursor cursor = paragraphCursor(range);
+        List<String> paras = new ArrayList<>(cursor.getParagraphNum());
         //读取word文本内容
-        for (int i = 0; i < getParagraphNum(); i++) {
-            paras.add(readParagraph(i));
+        while (cursor.next()) {
+            paras.add(cursor.getText());
         }
         return paras;
     }
 
+    /**
+     * 返回当前文档所有段落（包括表格中的段落）的向前游标
+     *
+     * @return
+     */
+    public Word2003ParagraphCursor paragraphCursor() {
+        return paragraphCursor(range);
+    }
+
+    /**
+     * 返回指定范围（段落、表格、单元格等）内所有段落的向前游标
+     *
+     * @param range 指定范围
+     * @return
+     */
+    public Word2003ParagraphCursor paragraphCursor(Range range) {
+        return new Word2003ParagraphCursor(document, range);
+    }
+
     /**
      * 必须要注意的是：poi对word 2003段落的处理，不会区分所有表格中的段落。
-     * 该接口会替换当前文档包括表格在内的所有段落中的对应文本
+     * 该接口会替换当前文档包括表格在内的所有段落中的对应文本。
+     * 所有替换先统一收集，再由{@link Word2003BatchEditor}按位置从后往前一次执行
      *
      * @param bookmark 替换书签集
      * @return 返回在bookmark和段落文本中共有的被正确替换掉的标签集合
      */
     @Override
     public HashMap<String, String> replaceInParas(HashMap<String, String> bookmark) {
-        HashMap<String, String> replacedBookmark = new HashMap<>();
-        for (int i = 0; i < getParagraphNum(); i++) {
-            replacedBookmark.putAll(replaceInPara(i, bookmark));
-        }
-        return replacedBookmark;
+        return replaceInRange(range, bookmark);
     }
 
     @Override
@@ -157,44 +206,87 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
 
     /**
      * 根据替换书签集的内容，替换当前指定段落文本的对应标签。举例可参见 {@link AbstractWord#replaceInPara(int, HashMap)}
-     * 这里通过直接调用poi内置方法{@link Paragraph#replaceText(String, String)}实现替换
+     * 参见{@link Word2003#replaceInRange(Range, HashMap)}
      *
      * @param para     指定段落
      * @param bookmark 替换书签集
      * @return 返回在bookmark和段落文本中共有的被正确替换掉的标签集合
      */
     public HashMap<String, String> replaceInPara(Paragraph para, HashMap<String, String> bookmark) {
+        return replaceInRange(para, bookmark);
+    }
+
+    /**
+     * 根据替换书签集的内容，替换指定范围（段落、表格、整个文档等）中的对应标签。
+     * 先找出范围内所有书签的所有位置，再由{@link Word2003BatchEditor}按位置从后往前一次执行，
+     * 而不是每替换一个标签就调用一次{@link Paragraph#replaceText(String, String)}。
+     * 替换值按字面值写入，不会被再次替换；不同书签在文本中有重叠时，保留位置靠前的（位置相同时保留较长的）
+     *
+     * @param range    指定范围
+     * @param bookmark 替换书签集
+     * @return 返回在bookmark和范围文本中共有的被正确替换掉的标签集合
+     */
+    public HashMap<String, String> replaceInRange(Range range, HashMap<String, String> bookmark) {
         HashMap<String, String> replacedBookmark = new HashMap<>();
-        if (para == null || bookmark == null || bookmark.size() == 0) {
+        if (range == null || bookmark == null || bookmark.size() == 0) {
             return replacedBookmark;
         }
-        String text = para.text();
-
-        //使用bookmark对其对应标签替换文本内容
+        Word2003BatchEditor editor = new Word2003BatchEditor(document, range);
         for (Map.Entry<String, String> bm : bookmark.entrySet()) {
-            //遍历所有书签
-            String labelKey = bm.getKey();
-            String replacement = bm.getValue();
-            if (text.contains(labelKey)) {
-                //如果text中含有当前键，替换
-                para.replaceText(labelKey, replacement);
+            //遍历所有书签，收集text中当前键的所有位置
+            if (editor.replaceAll(bm.getKey(), bm.getValue()) > 0) {
                 //将成功被替换掉的标签添加到输出结果集
-                replacedBookmark.put(labelKey, replacement);
+                replacedBookmark.put(bm.getKey(), bm.getValue());
             }
         }
+        applyEdits(editor);
         return replacedBookmark;
     }
 
+    /**
+     * 执行批量编辑器中收集的修改。文本有修改时，表格索引失效
+     *
+     * @param editor 批量编辑器
+     */
+    private void applyEdits(Word2003BatchEditor editor) {
+        if (editor.apply() > 0) {
+            invalidateTableIndex();
+        }
+    }
+
+    /**
+     * 返回文档中的所有表格。
+     * 第一次调用时用{@link TableIterator}扫描一遍文档构造表格索引，之后直接返回索引，
+     * 因此按索引读取表格不再需要每次从头迭代整个文档。
+     * 通过本类替换文本后索引自动失效；如果绕过本类直接修改了{@link Word2003#getRange()}，
+     * 文本长度变化时索引也会在下次访问时重建，其他情况请调用{@link Word2003#invalidateTableIndex()}
+     *
+     * @return 所有表格的只读list
+     */
+    public List<Table> getTables() {
+        if (tables == null || tablesEndOffset != range.getEndOffset()) {
+            List<Table> list = new ArrayList<>();
+            TableIterator it = new TableIterator(range);
+            while (it.hasNext()) {
+                //迭代文档中的表格
+                list.add(it.next());
+            }
+            tables = Collections.unmodifiableList(list);
+            tablesEndOffset = range.getEndOffset();
+        }
+        return tables;
+    }
+
+    /**
+     * 使表格索引失效，下次访问表格时重新扫描文档
+     */
+    public void invalidateTableIndex() {
+        tables = null;
+    }
+
     @Override
     public int getTableNum() {
-        int num = 0;
-        TableIterator it = new TableIterator(range);
-        while (it.hasNext()) {
-            //迭代文档中的表格
-            it.next();
-            num++;
-        }
-        return num;
+        return getTables().size();
     }
 
 
@@ -202,21 +294,11 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
      * 获得第pos+1个表格对象
      *
      * @param pos 表格索引
-     * @return
+     * @return 表格不存在时返回null
      */
     public Table getTable(int pos) {
-        int num = 0;
-        TableIterator it = new TableIterator(range);
-        Table table;
-        while (it.hasNext()) {
-            //迭代文档中的表格
-            table = it.next();
-            if (num == pos) {
-                return table;
-            }
-            num++;
-        }
-        return null;
+        List<Table> tables = getTables();
+        return pos >= 0 && pos < tables.size() ? tables.get(pos) : null;
     }
 
     @Override
@@ -288,13 +370,8 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
     }
 
     private List<String> cellToStringList(TableCell cell) {
-        List<String> cellParaStrings = new ArrayList<>();
-        for (int k = 0; k < cell.numParagraphs(); k++) {
-            //遍历每个单元的每个段落
-            Paragraph para = cell.getParagraph(k);
-            cellParaStrings.add(para.text());
-        }
-        return cellParaStrings;
+        //遍历每个单元的每个段落
+        return readParagraphsToList(cell);
     }
 
     /**
@@ -310,48 +387,58 @@ public class Word2003 extends AbstractWord<HWPFDocument> implements Serializable
     }
 
     /**
-     * 根据替换书签集的内容，替换当前指定段落文本的对应标签。举例可参见 {@link AbstractWord#replaceInTable(int, HashMap)}
-     * <p>
-     * 注意：这里会遍历当前表格的每个单元格文本，每个文本都是多个para的集合，并交给{@link Word2003#replaceInPara(Paragraph, HashMap)}
+     * 根据替换书签集的内容，替换当前指定表格文本的对应标签。举例可参见 {@link AbstractWord#replaceInTable(int, HashMap)}
+     * 参见{@link Word2003#replaceInRange(Range, HashMap)}
      *
      * @param table    指定表格
      * @param bookmark 替换书签集
      * @return 返回在bookmark和表格文本中共有的被正确替换掉的标签集合
      */
     public HashMap<String, String> replaceInTable(Table table, HashMap<String, String> bookmark) {
-        HashMap<String, String> replacedBookmark = new HashMap<>();
-        if (table == null || bookmark == null || bookmark.size() == 0) {
-            return replacedBookmark;
-        }
-        //迭代行，默认从0开始
-        for (int i = 0; i < table.numRows(); i++) {
-            TableRow tr = table.getRow(i);
-            //迭代列，默认从0开始
-            for (int j = 0; j < tr.numCells(); j++) {
-                //遍历每个单元
-                TableCell td = tr.getCell(j);
-                for (int k = 0; k < td.numParagraphs(); k++) {
-                    //遍历每个单元的每个段落
-                    Paragraph para = td.getParagraph(k);
-                    replacedBookmark.putAll(replaceInPara(para, bookmark));
-                }
-            }
-        }
-        return replacedBookmark;
+        return replaceInRange(table, bookmark);
     }
 
+    /**
+     * 替换当前文档所有表格中的对应标签。所有表格中的替换先统一收集，再按位置从后往前一次执行
+     *
+     * @param bookmark 替换书签集
+     * @return 返回在bookmark和表格文本中共有的被正确替换掉的标签集合
+     */
     @Override
     public HashMap<String, String> replaceInTables(HashMap<String, String> bookmark) {
         HashMap<String, String> replacedBookmark = new HashMap<>();
+        if (bookmark == null || bookmark.size() == 0) {
+            return replacedBookmark;
+        }
+        //所有表格相对于文档范围的起止位置
+        List<int[]> tableSpans = new ArrayList<>();
+        int rangeStart = range.getStartOffset();
+        for (Table table : getTables()) {
+            tableSpans.add(new int[]{table.getStartOffset() - rangeStart, table.getEndOffset() - rangeStart});
+        }
+        if (tableSpans.isEmpty()) {
+            return replacedBookmark;
+        }
 
-        TableIterator it = new TableIterator(range);
-        Table table;
-        while (it.hasNext()) {
-            //迭代文档中的表格
-            table = it.next();
-            //替换
-            replacedBookmark.putAll(replaceInTable(table, bookmark));
+        Word2003BatchEditor editor = new Word2003BatchEditor(document, range);
+        String text = editor.getText();
+        for (Map.Entry<String, String> bm : bookmark.entrySet()) {
+            //遍历所有书签
+            String labelKey = bm.getKey();
+            if (labelKey == null || labelKey.isEmpty()) {
+                continue;
+            }
+            for (int[] span : tableSpans) {
+                //只收集落在表格内的位置
+                int offset = text.indexOf(labelKey, span[0]);
+                while (offset >= 0 && offset + labelKey.length() <= span[1]) {
+                    editor.replace(offset, labelKey, bm.getValue());
+                    replacedBookmark.put(labelKey, bm.getValue());
+                    offset = text.indexOf(labelKey, offset + labelKey.length());
+                }
+            }
         }
+        applyEdits(editor);
         return replacedBookmark;
     }
 
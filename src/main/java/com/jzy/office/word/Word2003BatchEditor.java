@@ -0,0 +1,172 @@
+package com.jzy.office.word;
+
+import lombok.Getter;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.usermodel.Range;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @ClassName Word2003BatchEditor
+ * @Author JinZhiyun
+ * @Description word 2003文档的批量文本编辑器。
+ * poi每次调用{@link Range#replaceText(String, String)}都要插入、删除文本，并平移其后所有字符run、段落、节的位置，
+ * 对同一个范围逐个标签替换时，文档中的标签越多越慢。该类先收集某个范围内的所有替换，再按位置从后往前一次性执行，
+ * 靠后的修改不会影响靠前修改的位置，因此不需要在每次替换后重新读取文本、重新查找位置。
+ * 另外，替换前后长度相同的修改直接覆盖文档文本，不需要平移任何位置。
+ * <p>
+ * 注意：直接覆盖文本依赖poi默认的文本表模式，即未设置系统属性{@link HWPFDocument#PROPERTY_PRESERVE_TEXT_TABLE}
+ * @Date 2021/2/22 14:05
+ * @Version 1.0
+ **/
+public class Word2003BatchEditor {
+    /**
+     * 按位置排序修改，位置相同时较长的在前
+     */
+    private static final Comparator<Edit> EDIT_ORDER = Comparator.<Edit>comparingInt(e -> e.offset)
+            .thenComparing(Comparator.<Edit>comparingInt(e -> e.text.length()).reversed());
+
+    /**
+     * 文档对象
+     */
+    private HWPFDocument document;
+
+    /**
+     * 编辑的范围
+     */
+    @Getter
+    private Range range;
+
+    /**
+     * 范围内的文本，即所有修改位置所参照的文本
+     */
+    @Getter
+    private String text;
+
+    /**
+     * 收集到的修改
+     */
+    private List<Edit> edits = new ArrayList<>();
+
+    /**
+     * 构造指定范围的批量编辑器
+     *
+     * @param document 文档对象
+     * @param range    编辑的范围
+     */
+    public Word2003BatchEditor(HWPFDocument document, Range range) {
+        this.document = document;
+        this.range = range;
+        this.text = range.text();
+    }
+
+    /**
+     * 添加一个修改：将范围文本中从offset开始的oldText替换为newText。
+     * 修改在调用{@link Word2003BatchEditor#apply()}时才真正执行
+     *
+     * @param offset  相对于范围起始位置的偏移
+     * @param oldText 被替换的文本
+     * @param newText 替换成的文本
+     */
+    public void replace(int offset, String oldText, String newText) {
+        if (offset < 0 || !text.startsWith(oldText, offset)) {
+            throw new IllegalArgumentException("位置" + offset + "处的文本不是：" + oldText);
+        }
+        edits.add(new Edit(offset, oldText, newText == null ? "" : newText));
+    }
+
+    /**
+     * 将范围文本中所有的oldText替换为newText
+     *
+     * @param oldText 被替换的文本
+     * @param newText 替换成的文本
+     * @return 找到的oldText的个数
+     */
+    public int replaceAll(String oldText, String newText) {
+        int count = 0;
+        if (oldText == null || oldText.isEmpty()) {
+            return count;
+        }
+        int offset = text.indexOf(oldText);
+        while (offset >= 0) {
+            replace(offset, oldText, newText);
+            count++;
+            offset = text.indexOf(oldText, offset + oldText.length());
+        }
+        return count;
+    }
+
+    /**
+     * 返回已收集的修改数量
+     *
+     * @return
+     */
+    public int getEditCount() {
+        return edits.size();
+    }
+
+    /**
+     * 按位置从后往前执行所有收集到的修改。与前面的修改有重叠的修改会被忽略
+     *
+     * @return 实际执行的修改数量
+     */
+    public int apply() {
+        //去掉相互重叠的修改，保留位置靠前的（位置相同时保留较长的）
+        Collections.sort(edits, EDIT_ORDER);
+        List<Edit> accepted = new ArrayList<>(edits.size());
+        int lastEnd = 0;
+        for (Edit edit : edits) {
+            if (edit.offset >= lastEnd) {
+                accepted.add(edit);
+                lastEnd = edit.offset + edit.text.length();
+            }
+        }
+        edits.clear();
+
+        StringBuilder documentText = document.getText();
+        int rangeStart = range.getStartOffset();
+        for (int i = accepted.size() - 1; i >= 0; i--) {
+            //从后往前执行，前面修改的位置不受影响
+            Edit edit = accepted.get(i);
+            if (edit.text.length() == edit.replacement.length()) {
+                //长度不变，直接覆盖文本
+                int start = rangeStart + edit.offset;
+                documentText.replace(start, start + edit.text.length(), edit.replacement);
+            } else {
+                range.replaceText(edit.text, edit.replacement, edit.offset);
+            }
+        }
+        //范围文本已改变
+        text = range.text();
+        return accepted.size();
+    }
+
+    /**
+     * 一个替换修改
+     */
+    private static class Edit {
+        /**
+         * 相对于范围起始位置的偏移
+         */
+        private int offset;
+
+        /**
+         * 被替换的文本
+         */
+        private String text;
+
+        /**
+         * 替换成的文本
+         */
+        private String replacement;
+
+        Edit(int offset, String text, String replacement) {
+            this.offset = offset;
+            this.text = text;
+            this.replacement = replacement;
+        }
+    }
+}
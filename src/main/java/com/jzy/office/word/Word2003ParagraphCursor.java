@@ -0,0 +1,197 @@
+package com.jzy.office.word;
+
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.model.PAPX;
+import org.apache.poi.hwpf.usermodel.Paragraph;
+import org.apache.poi.hwpf.usermodel.Range;
+
+import java.util.List;
+
+/**
+ * @ClassName Word2003ParagraphCursor
+ * @Author JinZhiyun
+ * @Description word 2003文档指定范围内段落的向前游标。
+ * {@link Range#getParagraph(int)}每次都要解压段落的样式和属性并构造一个新的段落对象，只需要段落文本时这些工作都是多余的。
+ * 该游标直接按顺序遍历一遍文档的段落表，只记录当前段落的起止位置，文本从文档文本中截取，
+ * 只有调用{@link Word2003ParagraphCursor#getParagraph()}时才会构造段落对象。
+ * 段落的数量和文本与{@link Range#numParagraphs()}、{@link Paragraph#text()}一致。
+ * <p>
+ * Word2003ParagraphCursor cursor = word2003.paragraphCursor();
+ * while (cursor.next()) {
+ * String text = cursor.getText();
+ * ...
+ * }
+ * <p>
+ * 注意：游标基于创建时的段落表，文档文本被修改后请重新创建游标
+ * @Date 2021/2/23 10:20
+ * @Version 1.0
+ **/
+public class Word2003ParagraphCursor {
+    /**
+     * 文档的文本
+     */
+    private StringBuilder documentText;
+
+    /**
+     * 遍历的范围
+     */
+    private Range range;
+
+    /**
+     * 文档的段落表
+     */
+    private List<PAPX> papxes;
+
+    /**
+     * 范围内第一个段落在段落表中的索引
+     */
+    private int papxStart;
+
+    /**
+     * 范围内的段落数量
+     */
+    private int paragraphNum;
+
+    /**
+     * 当前段落在范围内的索引，未开始遍历时为-1
+     */
+    private int index = -1;
+
+    /**
+     * 当前段落的起始位置
+     */
+    private int startOffset;
+
+    /**
+     * 当前段落的结束位置
+     */
+    private int endOffset;
+
+    /**
+     * 构造指定范围的段落游标
+     *
+     * @param document 文档对象
+     * @param range    遍历的范围
+     */
+    public Word2003ParagraphCursor(HWPFDocument document, Range range) {
+        this.documentText = document.getText();
+        this.range = range;
+        this.papxes = document.getParagraphTable().getParagraphs();
+        this.paragraphNum = range.numParagraphs();
+        this.papxStart = findFirstPapx(range.getStartOffset());
+    }
+
+    /**
+     * 二分查找包含指定位置的段落在段落表中的索引
+     *
+     * @param offset 位置
+     * @return
+     */
+    private int findFirstPapx(int offset) {
+        int low = 0;
+        int high = papxes.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (papxes.get(mid).getEnd() <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 移动到下一个段落
+     *
+     * @return 还有段落时返回true，已经遍历完时返回false
+     */
+    public boolean next() {
+        if (index + 1 >= paragraphNum) {
+            index = paragraphNum;
+            return false;
+        }
+        index++;
+        PAPX papx = papxes.get(papxStart + index);
+        startOffset = Math.max(range.getStartOffset(), papx.getStart());
+        endOffset = Math.min(range.getEndOffset(), papx.getEnd());
+        return true;
+    }
+
+    /**
+     * 返回当前段落在范围内的索引
+     *
+     * @return
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * 返回范围内的段落数量
+     *
+     * @return
+     */
+    public int getParagraphNum() {
+        return paragraphNum;
+    }
+
+    /**
+     * 返回当前段落在文档文本中的起始位置
+     *
+     * @return
+     */
+    public int getStartOffset() {
+        checkPosition();
+        return startOffset;
+    }
+
+    /**
+     * 返回当前段落在文档文本中的结束位置（不包含）
+     *
+     * @return
+     */
+    public int getEndOffset() {
+        checkPosition();
+        return endOffset;
+    }
+
+    /**
+     * 返回当前段落的文本
+     *
+     * @return
+     */
+    public String getText() {
+        checkPosition();
+        return documentText.substring(startOffset, endOffset);
+    }
+
+    /**
+     * 将当前段落的文本追加到sb中，不产生中间字符串
+     *
+     * @param sb 目标
+     */
+    public void appendText(StringBuilder sb) {
+        checkPosition();
+        sb.append(documentText, startOffset, endOffset);
+    }
+
+    /**
+     * 构造并返回当前段落的段落对象，需要读取段落样式、属性时使用
+     *
+     * @return
+     */
+    public Paragraph getParagraph() {
+        checkPosition();
+        return range.getParagraph(index);
+    }
+
+    /**
+     * 检查游标是否指向一个段落
+     */
+    private void checkPosition() {
+        if (index < 0 || index >= paragraphNum) {
+            throw new IllegalStateException("游标没有指向任何段落，当前索引：" + index);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.jzy.office.word;
+
+import com.jzy.office.exception.InvalidFileTypeException;
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hwpf.OldWordFileFormatException;
+import org.apache.poi.hwpf.model.ComplexFileTable;
+import org.apache.poi.hwpf.model.FibBase;
+import org.apache.poi.hwpf.model.FileInformationBlock;
+import org.apache.poi.hwpf.model.SubdocumentType;
+import org.apache.poi.hwpf.model.TextPiece;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @ClassName Word2003TextExtractor
+ * @Author JinZhiyun
+ * @Description word 2003（.doc，.wps）文档的纯文本读取器。
+ * 构造{@link Word2003}对象时HWPFDocument会读取并解析样式表、字符和段落属性、图片、域、书签等所有结构，
+ * 只需要段落文本（如对大量归档文档建立索引）时这些都是多余的。
+ * 该类只读取文件信息块（FIB）、表流中的文本片段表和WordDocument流中的文本，按正文的文本片段顺序逐段回调段落文本。
+ * <p>
+ * 段落以段落标记\r或单元格、行结束标记\u0007划分，段落文本包含末尾的标记，
+ * 与{@link Word2003#readParagraphsToList()}一致（同样包含表格中的段落）。
+ * 不支持加密的文档以及Word 95及更早版本的文档
+ * @Date 2021/2/24 14:40
+ * @Version 1.0
+ **/
+public class Word2003TextExtractor {
+    /**
+     * 主文档流名称
+     */
+    private static final String STREAM_WORD_DOCUMENT = "WordDocument";
+
+    /**
+     * 表流名称，由FIB决定使用哪一个
+     */
+    private static final String STREAM_TABLE_0 = "0Table";
+
+    private static final String STREAM_TABLE_1 = "1Table";
+
+    /**
+     * HWPF支持的最小nFib，更早的版本为Word 95及以前
+     */
+    private static final int MIN_SUPPORTED_NFIB = 106;
+
+    /**
+     * 读取指定路径的.doc或.wps文件
+     *
+     * @param inputFile 输入文件路径
+     * @param consumer  段落文本的回调
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public void extract(String inputFile, Consumer<String> consumer) throws IOException, InvalidFileTypeException {
+        extract(new File(inputFile), consumer);
+    }
+
+    /**
+     * 读取.doc或.wps文件
+     *
+     * @param file     输入文件对象
+     * @param consumer 段落文本的回调
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public void extract(File file, Consumer<String> consumer) throws IOException, InvalidFileTypeException {
+        WordVersionEnum version = WordVersionEnum.getVersion(file.getAbsolutePath());
+        if (!WordVersionEnum.VERSION_2003.equals(version) && !WordVersionEnum.VERSION_WPS.equals(version)) {
+            throw new InvalidFileTypeException("错误的文件类型！" + Word2003TextExtractor.class + "仅支持文件格式：" + WordVersionEnum.VERSION_2003.getSuffix()
+                    + ", " + WordVersionEnum.VERSION_WPS.getSuffix());
+        }
+        try (NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true)) {
+            extract(fs.getRoot(), consumer);
+        }
+    }
+
+    /**
+     * 读取.doc或.wps文件的输入流。该方法会读完但不会关闭输入流
+     *
+     * @param inputStream 输入流对象
+     * @param consumer    段落文本的回调
+     * @throws IOException
+     */
+    public void extract(InputStream inputStream, Consumer<String> consumer) throws IOException {
+        try (NPOIFSFileSystem fs = new NPOIFSFileSystem(inputStream)) {
+            extract(fs.getRoot(), consumer);
+        }
+    }
+
+    /**
+     * 读取文档目录中的正文文本
+     *
+     * @param directory 文档的根目录
+     * @param consumer  段落文本的回调
+     * @throws IOException
+     */
+    private void extract(DirectoryNode directory, Consumer<String> consumer) throws IOException {
+        byte[] mainStream = readEntry(directory, STREAM_WORD_DOCUMENT);
+        FileInformationBlock fib = new FileInformationBlock(mainStream);
+        FibBase fibBase = fib.getFibBase();
+        if (fibBase.getNFib() < MIN_SUPPORTED_NFIB) {
+            throw new OldWordFileFormatException("文档版本过旧，不支持Word 95及更早版本的文档");
+        }
+        if (fibBase.isFEncrypted()) {
+            throw new EncryptedDocumentException("不支持加密的文档");
+        }
+        String tableStreamName = fibBase.isFWhichTblStm() ? STREAM_TABLE_1 : STREAM_TABLE_0;
+        if (!directory.hasEntry(tableStreamName)) {
+            throw new IOException("文档中不存在表流" + tableStreamName + "，文档可能已损坏");
+        }
+        byte[] tableStream = readEntry(directory, tableStreamName);
+        fib.fillVariableFields(mainStream, tableStream);
+
+        //只解析文本片段表，不解析样式、属性等其他结构
+        List<TextPiece> textPieces = new ComplexFileTable(mainStream, tableStream, fib.getFcClx(), 0)
+                .getTextPieceTable().getTextPieces();
+        //正文在所有文本的最前面
+        int mainEnd = fib.getSubdocumentTextStreamLength(SubdocumentType.MAIN);
+
+        StringBuilder para = new StringBuilder();
+        for (TextPiece textPiece : textPieces) {
+            //文本片段表已按字符位置排序
+            int start = textPiece.getStart();
+            if (start >= mainEnd) {
+                break;
+            }
+            StringBuilder pieceText = textPiece.getStringBuilder();
+            int end = Math.min(pieceText.length(), mainEnd - start);
+            for (int i = 0; i < end; i++) {
+                char c = pieceText.charAt(i);
+                para.append(c);
+                if (c == '\r' || c == '\u0007') {
+                    //段落结束
+                    consumer.accept(para.toString());
+                    para.setLength(0);
+                }
+            }
+        }
+        if (para.length() > 0) {
+            consumer.accept(para.toString());
+        }
+    }
+
+    /**
+     * 读取文档目录中指定流的全部字节
+     *
+     * @param directory 文档的根目录
+     * @param name      流名称
+     * @return
+     * @throws IOException
+     */
+    private static byte[] readEntry(DirectoryNode directory, String name) throws IOException {
+        try (DocumentInputStream in = directory.createDocumentInputStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.jzy.office.word;
 
+import com.jzy.office.OoxmlIncrementalSaver;
 import com.jzy.office.exception.InvalidFileTypeException;
 import com.jzy.office.matcher.LabelMatcher;
 import lombok.ToString;
@@ -11,6 +12,10 @@ import java.util.*;
 
 /**
  * Word 2007版本的包装类，支持.docx文件的解析
+ * <p>
+ * 开启{@link #setIncrementalSave(boolean)}后，由文件构造的对象在保存时只重新序列化正文word/document.xml，
+ * 其他部件从源文件原样复制，参见{@link OoxmlIncrementalSaver}。页眉、页脚、样式、编号等其他部件的修改不会被保存；
+ * 通过{@link #getDocument()}直接操作文档后，保存时仍会完整写出整个文档
  *
  * @author JinZhiyun
  * @version 1.0 2020/11/28
@@ -19,6 +24,11 @@ import java.util.*;
 public class Word2007 extends AbstractWord<XWPFDocument> {
     private static final long serialVersionUID = -20071L;
 
+    /**
+     * 是否需要完整保存。文档已交给外部直接操作时可能修改了正文以外的部件
+     */
+    private transient boolean fullSaveRequired;
+
     /**
      * 由输入文件路径构造word对象
      *
@@ -74,9 +84,27 @@ public class Word2007 extends AbstractWord<XWPFDocument> {
         this.document = document;
     }
 
+    /**
+     * 获取文档对象。调用后无法再跟踪对文档的修改，之后的保存都将完整写出整个文档
+     *
+     * @return
+     */
+    @Override
+    public XWPFDocument getDocument() {
+        fullSaveRequired = true;
+        return document;
+    }
+
     @Override
     public void save(OutputStream outputStream) throws IOException {
-        document.write(outputStream);
+        if (!isInputFileReadOnSave() || !OoxmlIncrementalSaver.save(document, inputFilePath, Collections.singletonList(document), outputStream)) {
+            document.write(outputStream);
+        }
+    }
+
+    @Override
+    protected boolean isInputFileReadOnSave() {
+        return incrementalSave && !fullSaveRequired;
     }
 
     /**
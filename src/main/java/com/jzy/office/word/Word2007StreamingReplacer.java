@@ -0,0 +1,444 @@
+package com.jzy.office.word;
+
+import com.jzy.office.StaxEventWriter;
+import com.jzy.office.exception.InvalidFileTypeException;
+import com.jzy.office.matcher.CachedLabelResolver;
+import com.jzy.office.matcher.LabelMatcher;
+import com.jzy.office.matcher.LabelMatchers;
+import com.jzy.office.matcher.LabelResolver;
+import lombok.Getter;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.events.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+/**
+ * @ClassName Word2007StreamingReplacer
+ * @Author JinZhiyun
+ * @Description word 2007模板的流式标签替换器。
+ * {@link DefaultWord2007#replaceInAllUsingLabelMatcher(HashMap)}需要先把整个文档解析成XWPFDocument，模板很大时解析和保存是主要开销。
+ * 该类逐个复制.docx压缩包中的条目：只有word/document.xml（以及可选的页眉、页脚）用StAX边读边写，替换其中w:t文本里的标签；
+ * 其他条目（图片、样式等）按压缩后的原始字节直接复制，不解压也不重新压缩。
+ * <p>
+ * 每个段落的所有w:t先缓存起来，拼接成段落文本后再匹配标签，因此被拆分在同一段落多个run中的标签也能被替换：
+ * 替换值写入标签开始处所在的w:t（沿用该run的格式），标签其余部分所在的w:t中对应的文本被删除。
+ * 替换规则同{@link LabelMatcher#replaceAllLabels(String, LabelResolver, Map)}：标签没有对应的值时替换成空串
+ * @Date 2021/2/25 10:15
+ * @Version 1.0
+ **/
+public class Word2007StreamingReplacer {
+    /**
+     * 页眉、页脚部件名称
+     */
+    private static final Pattern HEADER_FOOTER_PART_NAME = Pattern.compile("word/(header|footer)\\d*\\.xml");
+
+    /**
+     * wordprocessingml的命名空间
+     */
+    private static final String W_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        //w:t中的文本作为一个事件读出
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * 标签匹配器
+     */
+    @Getter
+    private LabelMatcher labelMatcher;
+
+    /**
+     * 是否同时替换页眉、页脚中的标签
+     */
+    @Getter
+    private boolean includeHeadersFooters;
+
+    /**
+     * 使用默认标签匹配器构造替换器，同时替换页眉、页脚中的标签。默认标签匹配器匹配标签格式为：${标签1}。参见{@link LabelMatchers#DEFAULT_LABEL_MATCHER}
+     */
+    public Word2007StreamingReplacer() {
+        this(LabelMatchers.DEFAULT_LABEL_MATCHER, true);
+    }
+
+    /**
+     * 构造替换器
+     *
+     * @param labelMatcher          标签匹配器
+     * @param includeHeadersFooters 是否同时替换页眉、页脚中的标签
+     */
+    public Word2007StreamingReplacer(LabelMatcher labelMatcher, boolean includeHeadersFooters) {
+        this.labelMatcher = labelMatcher;
+        this.includeHeadersFooters = includeHeadersFooters;
+    }
+
+    /**
+     * 根据替换书签集的内容替换模板中的标签，结果保存到outputFile
+     *
+     * @param inputFile  模板文件路径
+     * @param outputFile 输出文件路径
+     * @param bookmark   替换书签集
+     * @return 返回在bookmark和模板中共有的被正确替换掉的标签集合
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public HashMap<String, String> replace(String inputFile, String outputFile, HashMap<String, String> bookmark) throws IOException, InvalidFileTypeException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            return replace(new File(inputFile), out, bookmark);
+        }
+    }
+
+    /**
+     * 根据替换书签集的内容替换模板中的标签，结果写入输出流。该方法不会关闭输出流
+     *
+     * @param inputFile    模板文件对象
+     * @param outputStream 输出流
+     * @param bookmark     替换书签集
+     * @return 返回在bookmark和模板中共有的被正确替换掉的标签集合
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public HashMap<String, String> replace(File inputFile, OutputStream outputStream, HashMap<String, String> bookmark) throws IOException, InvalidFileTypeException {
+        HashMap<String, String> replacedBookmark = new HashMap<>();
+        replace(inputFile, outputStream, bookmark == null ? label -> null : LabelResolver.of(bookmark), replacedBookmark);
+        return replacedBookmark;
+    }
+
+    /**
+     * 根据标签值解析器替换模板中的标签，结果写入输出流。只有模板中实际出现的标签才会求值，且同一个标签只求值一次。
+     * 该方法不会关闭输出流
+     *
+     * @param inputFile        模板文件对象
+     * @param outputStream     输出流
+     * @param resolver         标签值解析器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public void replace(File inputFile, OutputStream outputStream, LabelResolver resolver, Map<String, String> replacedBookmark) throws IOException, InvalidFileTypeException {
+        if (!WordVersionEnum.VERSION_2007.equals(WordVersionEnum.getVersion(inputFile.getAbsolutePath()))) {
+            throw new InvalidFileTypeException("错误的文件类型！" + Word2007StreamingReplacer.class + "仅支持文件格式：" + WordVersionEnum.VERSION_2007.getSuffix());
+        }
+        resolver = CachedLabelResolver.of(resolver);
+        try (ZipFile zipFile = new ZipFile(inputFile);
+             ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(new CloseShieldOutputStream(outputStream))) {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (isReplacedPart(entry.getName())) {
+                    //重新写入替换后的部件
+                    ZipArchiveEntry newEntry = new ZipArchiveEntry(entry.getName());
+                    newEntry.setMethod(ZipEntry.DEFLATED);
+                    newEntry.setTime(entry.getTime());
+                    zipOut.putArchiveEntry(newEntry);
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        replacePart(entry.getName(), in, new CloseShieldOutputStream(zipOut), resolver, replacedBookmark);
+                    }
+                    zipOut.closeArchiveEntry();
+                } else {
+                    //按原始压缩字节复制
+                    zipOut.addRawArchiveEntry(entry, zipFile.getRawInputStream(entry));
+                }
+            }
+            zipOut.finish();
+        }
+    }
+
+    /**
+     * 给定部件是否需要替换标签
+     *
+     * @param partName 部件名称
+     * @return
+     */
+    private boolean isReplacedPart(String partName) {
+        return Word2007TextExtractor.DOCUMENT_PART_NAME.equals(partName)
+                || (includeHeadersFooters && HEADER_FOOTER_PART_NAME.matcher(partName).matches());
+    }
+
+    /**
+     * 流式替换一个部件中的标签
+     *
+     * @param partName         部件名称
+     * @param in               部件xml的输入流
+     * @param out              替换后部件xml的输出流
+     * @param resolver         标签值解析器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，可以为null
+     * @throws IOException
+     */
+    private void replacePart(String partName, InputStream in, OutputStream out,
+                             LabelResolver resolver, Map<String, String> replacedBookmark) throws IOException {
+        XMLEventReader reader = null;
+        XMLStreamWriter writer = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLEventReader(in);
+            //XMLStreamWriter写不出standalone声明，直接写入声明
+            out.write(StaxEventWriter.XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+            writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            new PartReplacer(reader, new StaxEventWriter(writer), resolver, replacedBookmark).replace();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("替换" + partName + "中的标签失败", e);
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (XMLStreamException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 一个w:t文本节点。在段落结束时根据段落文本算出替换后的文本
+     */
+    private static class TextNode {
+        /**
+         * 原文本
+         */
+        private String text;
+
+        /**
+         * 替换后的文本，没有修改时为null
+         */
+        private String replaced;
+
+        TextNode(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * 一个部件的替换状态
+     */
+    private class PartReplacer {
+        private XMLEventReader reader;
+
+        private StaxEventWriter writer;
+
+        private LabelResolver resolver;
+
+        private Map<String, String> replacedBookmark;
+
+        /**
+         * 最外层段落开始后缓存的事件。不在段落中时直接写出
+         */
+        private List<XMLEvent> buffer = new ArrayList<>();
+
+        /**
+         * 缓存事件中w:t的开始元素和文本对应的文本节点，key为事件在buffer中的索引
+         */
+        private Map<Integer, TextNode> textNodes = new HashMap<>();
+
+        /**
+         * 正在读取的段落（可能嵌套，如文本框中的段落）各自的文本节点
+         */
+        private Deque<List<TextNode>> paragraphs = new ArrayDeque<>();
+
+        /**
+         * 当前w:t的文本节点，不在w:t中时为null
+         */
+        private TextNode currentText;
+
+        /**
+         * 从根元素到当前元素的本地名
+         */
+        private Deque<String> path = new ArrayDeque<>();
+
+        PartReplacer(XMLEventReader reader, StaxEventWriter writer, LabelResolver resolver, Map<String, String> replacedBookmark) {
+            this.reader = reader;
+            this.writer = writer;
+            this.resolver = resolver;
+            this.replacedBookmark = replacedBookmark;
+        }
+
+        void replace() throws XMLStreamException {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    startElement(event.asStartElement());
+                } else if (event.isEndElement()) {
+                    endElement(event);
+                } else if (event.isCharacters() && currentText != null) {
+                    currentText.text += event.asCharacters().getData();
+                    //w:t的文本统一在结束时写出
+                    continue;
+                }
+                if (paragraphs.isEmpty() && buffer.isEmpty()) {
+                    writer.add(event);
+                } else {
+                    buffer.add(event);
+                    if (paragraphs.isEmpty()) {
+                        //最外层段落结束，写出缓存的事件
+                        flushBuffer();
+                    }
+                }
+            }
+        }
+
+        private void startElement(StartElement element) {
+            QName name = element.getName();
+            String parent = path.peek();
+            path.push(name.getLocalPart());
+            if (!W_NAMESPACE.equals(name.getNamespaceURI())) {
+                return;
+            }
+            if ("p".equals(name.getLocalPart())) {
+                paragraphs.push(new ArrayList<>());
+            } else if ("t".equals(name.getLocalPart()) && "r".equals(parent) && !paragraphs.isEmpty()) {
+                currentText = new TextNode("");
+                paragraphs.peek().add(currentText);
+                //w:t开始元素的索引即将是buffer.size()
+                textNodes.put(buffer.size(), currentText);
+            }
+        }
+
+        private void endElement(XMLEvent event) {
+            path.pop();
+            QName name = event.asEndElement().getName();
+            if (!W_NAMESPACE.equals(name.getNamespaceURI())) {
+                return;
+            }
+            if ("t".equals(name.getLocalPart()) && currentText != null) {
+                currentText = null;
+            } else if ("p".equals(name.getLocalPart()) && !paragraphs.isEmpty()) {
+                replaceParagraph(paragraphs.pop());
+            }
+        }
+
+        /**
+         * 拼接段落的文本，替换其中的标签，并算出每个文本节点替换后的文本
+         *
+         * @param nodes 段落的文本节点
+         */
+        private void replaceParagraph(List<TextNode> nodes) {
+            if (nodes.isEmpty()) {
+                return;
+            }
+            StringBuilder paraText = new StringBuilder();
+            int[] nodeStarts = new int[nodes.size() + 1];
+            for (int i = 0; i < nodes.size(); i++) {
+                nodeStarts[i] = paraText.length();
+                paraText.append(nodes.get(i).text);
+            }
+            nodeStarts[nodes.size()] = paraText.length();
+
+            Matcher matcher = labelMatcher.getMatcher(paraText.toString());
+            if (!matcher.find()) {
+                return;
+            }
+            //每个文本节点替换后的文本
+            StringBuilder[] outputs = new StringBuilder[nodes.size()];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = new StringBuilder();
+            }
+            int last = 0;
+            do {
+                //标签之前的原文仍留在原来的节点中
+                appendOriginal(paraText, nodeStarts, outputs, last, matcher.start());
+                //替换值写入标签开始处所在的节点
+                String labelKey = matcher.group(1);
+                String replacement = resolver.resolve(labelKey);
+                if (replacement != null) {
+                    outputs[nodeAt(nodeStarts, outputs.length, matcher.start())].append(replacement);
+                    if (replacedBookmark != null) {
+                        replacedBookmark.put(labelKey, replacement);
+                    }
+                }
+                last = matcher.end();
+            } while (matcher.find());
+            appendOriginal(paraText, nodeStarts, outputs, last, paraText.length());
+
+            for (int i = 0; i < outputs.length; i++) {
+                TextNode node = nodes.get(i);
+                String output = outputs[i].toString();
+                if (!output.equals(node.text)) {
+                    node.replaced = output;
+                }
+            }
+        }
+
+        /**
+         * 将段落文本中[from, to)的原文按所在的节点分别追加到对应的输出
+         *
+         * @param paraText   段落文本
+         * @param nodeStarts 每个节点在段落文本中的起始位置
+         * @param outputs    每个节点替换后的文本
+         * @param from       起始位置
+         * @param to         结束位置（不包含）
+         */
+        private void appendOriginal(StringBuilder paraText, int[] nodeStarts, StringBuilder[] outputs, int from, int to) {
+            int pos = from;
+            while (pos < to) {
+                int idx = nodeAt(nodeStarts, outputs.length, pos);
+                int end = Math.min(to, nodeStarts[idx + 1]);
+                outputs[idx].append(paraText, pos, end);
+                pos = end;
+            }
+        }
+
+        /**
+         * 二分查找段落文本中指定位置的字符所在的节点
+         *
+         * @param nodeStarts 每个节点在段落文本中的起始位置
+         * @param nodeCount  节点数量
+         * @param offset     位置，必须小于段落文本长度
+         * @return 节点索引
+         */
+        private int nodeAt(int[] nodeStarts, int nodeCount, int offset) {
+            //最后一个起始位置不大于offset的节点，即包含offset的非空节点
+            int low = 0;
+            int high = nodeCount - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (nodeStarts[mid] <= offset) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 写出缓存的事件，w:t的文本替换为替换后的文本
+         */
+        private void flushBuffer() throws XMLStreamException {
+            for (int i = 0; i < buffer.size(); i++) {
+                XMLEvent event = buffer.get(i);
+                TextNode node = textNodes.get(i);
+                if (node != null) {
+                    //替换后的文本可能以空白开始或结束，需要保留空白
+                    boolean preserveSpace = node.replaced != null && event.asStartElement().getAttributeByName(StaxEventWriter.XML_SPACE) == null;
+                    writer.add(event, preserveSpace);
+                    String text = node.replaced == null ? node.text : node.replaced;
+                    if (!text.isEmpty()) {
+                        writer.writeCharacters(text);
+                    }
+                } else {
+                    writer.add(event);
+                }
+            }
+            buffer.clear();
+            textNodes.clear();
+        }
+    }
+}
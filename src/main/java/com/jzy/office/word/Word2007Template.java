@@ -0,0 +1,247 @@
+package com.jzy.office.word;
+
+import com.jzy.office.matcher.CachedLabelResolver;
+import com.jzy.office.matcher.LabelMatcher;
+import com.jzy.office.matcher.LabelMatchers;
+import com.jzy.office.matcher.LabelResolver;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.*;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTR;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * @ClassName Word2007Template
+ * @Author JinZhiyun
+ * @Description 预编译的word 2007模板。构造时扫描一遍文档的所有段落和表格，记录哪些run中含有标签，
+ * 之后每次填充只修改这些run，不再遍历整个文档、也不再对每个段落执行正则匹配。
+ * 适用于同一个模板反复填充不同书签集、并分别保存的场景：
+ * <p>
+ * DefaultWord2007 word2007 = new DefaultWord2007(filePath);
+ * Word2007Template template = word2007.compileTemplate();
+ * template.fill(bookmark1);
+ * word2007.save(outputPath1);
+ * template.fill(bookmark2);
+ * word2007.save(outputPath2);
+ * <p>
+ * 注意：编译时如果一个标签被拆分在了同一段落的多个run中，会将这些run的文本合并到第一个run中（后面的run文本置空），
+ * 因此编译后标签一定落在同一个run内，合并后的run沿用第一个run的格式
+ * @Date 2021/2/20 16:40
+ * @Version 1.0
+ **/
+public class Word2007Template {
+    /**
+     * 模板对应的word对象
+     */
+    @Getter
+    private Word2007 word;
+
+    /**
+     * 标签匹配器
+     */
+    @Getter
+    private LabelMatcher labelMatcher;
+
+    /**
+     * 所有含有标签的run，以及它们在模板中的原始文本
+     */
+    private List<LabelRun> labelRuns = new ArrayList<>();
+
+    /**
+     * 模板中出现的所有标签，按出现的先后顺序
+     */
+    private Set<String> labels = new LinkedHashSet<>();
+
+    /**
+     * 使用默认标签匹配器编译模板。默认标签匹配器匹配标签格式为：${标签1}。参见{@link LabelMatchers#DEFAULT_LABEL_MATCHER}
+     *
+     * @param word 模板对应的word对象
+     */
+    public Word2007Template(Word2007 word) {
+        this(word, LabelMatchers.DEFAULT_LABEL_MATCHER);
+    }
+
+    /**
+     * 使用给定的标签匹配器编译模板
+     *
+     * @param word         模板对应的word对象
+     * @param labelMatcher 标签匹配器
+     */
+    public Word2007Template(Word2007 word, LabelMatcher labelMatcher) {
+        this.word = word;
+        this.labelMatcher = labelMatcher;
+        compile();
+    }
+
+    /**
+     * 扫描文档所有段落和表格，记录含有标签的run
+     */
+    private void compile() {
+        XWPFDocument document = word.document;
+        for (XWPFParagraph para : document.getParagraphs()) {
+            //遍历所有段落
+            compileParagraph(para);
+        }
+        for (XWPFTable table : document.getTables()) {
+            for (XWPFTableRow row : table.getRows()) {
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    for (XWPFParagraph para : cell.getParagraphs()) {
+                        //遍历每个表格每行每个单元的每个段落
+                        compileParagraph(para);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 找到当前段落中所有标签所在的run。被拆分到多个run中的标签，先合并到第一个run中
+     *
+     * @param para 段落
+     */
+    private void compileParagraph(XWPFParagraph para) {
+        List<XWPFRun> runs = para.getRuns();
+        int runCount = runs.size();
+        if (runCount == 0) {
+            return;
+        }
+        //每个run的文本，以及它在段落文本中的起始位置
+        String[] runTexts = new String[runCount];
+        int[] runStarts = new int[runCount + 1];
+        StringBuilder paraText = new StringBuilder();
+        for (int i = 0; i < runCount; i++) {
+            runTexts[i] = runs.get(i).toString();
+            runStarts[i] = paraText.length();
+            paraText.append(runTexts[i]);
+        }
+        runStarts[runCount] = paraText.length();
+
+        Matcher matcher = labelMatcher.getMatcher(paraText.toString());
+        //当前标签组（一个或多个相邻标签所跨越的run区间）的第一个和最后一个run
+        int groupFirst = -1;
+        int groupLast = -1;
+        int runIdx = 0;
+        while (matcher.find()) {
+            labels.add(matcher.group(1));
+            //找到标签开始和结束字符所在的run。标签是按先后顺序找到的，因此run的索引只需往后移动
+            while (runStarts[runIdx + 1] <= matcher.start()) {
+                runIdx++;
+            }
+            int first = runIdx;
+            int last = first;
+            while (runStarts[last + 1] < matcher.end()) {
+                last++;
+            }
+            if (groupFirst >= 0 && first <= groupLast) {
+                //与上一个标签共用了run，并入同一组
+                groupLast = Math.max(groupLast, last);
+            } else {
+                if (groupFirst >= 0) {
+                    addLabelRun(runs, runTexts, groupFirst, groupLast);
+                }
+                groupFirst = first;
+                groupLast = last;
+            }
+        }
+        if (groupFirst >= 0) {
+            addLabelRun(runs, runTexts, groupFirst, groupLast);
+        }
+    }
+
+    /**
+     * 将第first到第last个run的文本合并到第first个run，并记录该run
+     *
+     * @param runs     段落的所有run
+     * @param runTexts 段落的所有run的文本
+     * @param first    第一个run的索引
+     * @param last     最后一个run的索引
+     */
+    private void addLabelRun(List<XWPFRun> runs, String[] runTexts, int first, int last) {
+        XWPFRun run = runs.get(first);
+        String text = runTexts[first];
+        if (first < last) {
+            StringBuilder merged = new StringBuilder(text);
+            for (int i = first + 1; i <= last; i++) {
+                merged.append(runTexts[i]);
+                setRunText(runs.get(i), "");
+            }
+            text = merged.toString();
+            setRunText(run, text);
+        }
+        labelRuns.add(new LabelRun(run, text));
+    }
+
+    /**
+     * 设置run的文本，并删除run中多余的文本节点，保证run的文本只有text
+     *
+     * @param run  run对象
+     * @param text 文本
+     */
+    private static void setRunText(XWPFRun run, String text) {
+        run.setText(text, 0);
+        CTR ctr = run.getCTR();
+        while (ctr.sizeOfTArray() > 1) {
+            ctr.removeT(1);
+        }
+    }
+
+    /**
+     * 返回模板中含有标签的run的数量，即每次填充需要修改的run的数量
+     *
+     * @return
+     */
+    public int getPlaceholderCount() {
+        return labelRuns.size();
+    }
+
+    /**
+     * 返回模板中出现的所有标签，按出现的先后顺序
+     *
+     * @return
+     */
+    public Set<String> getLabels() {
+        return Collections.unmodifiableSet(labels);
+    }
+
+    /**
+     * 根据替换书签集的内容填充模板。每次填充都从模板的原始文本开始替换，因此可以反复填充。
+     * 替换规则同{@link LabelMatcher#replaceAllLabels(String, HashMap)}：标签在bookmark中没有的，替换成空串
+     *
+     * @param bookmark 替换书签集
+     * @return 返回在bookmark和模板中共有的被正确替换掉的标签集合
+     */
+    public HashMap<String, String> fill(HashMap<String, String> bookmark) {
+        HashMap<String, String> replacedBookmark = new HashMap<>();
+        fill(bookmark == null ? label -> null : LabelResolver.of(bookmark), replacedBookmark);
+        return replacedBookmark;
+    }
+
+    /**
+     * 根据标签值解析器填充模板。只有模板中实际出现的标签才会求值，且本次填充中同一个标签只求值一次。
+     * 解析器返回null的标签替换成空串
+     *
+     * @param resolver         标签值解析器
+     * @param replacedBookmark 记录被正确替换掉的标签及其替换值，不需要记录时传null
+     */
+    public void fill(LabelResolver resolver, Map<String, String> replacedBookmark) {
+        resolver = new CachedLabelResolver(resolver);
+        for (LabelRun labelRun : labelRuns) {
+            setRunText(labelRun.run, labelMatcher.replaceAllLabels(labelRun.templateText, resolver, replacedBookmark));
+        }
+    }
+
+    /**
+     * 含有标签的run，及其在模板中的原始文本
+     */
+    private static class LabelRun {
+        private XWPFRun run;
+
+        private String templateText;
+
+        LabelRun(XWPFRun run, String templateText) {
+            this.run = run;
+            this.templateText = templateText;
+        }
+    }
+}
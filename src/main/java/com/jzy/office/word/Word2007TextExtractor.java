@@ -0,0 +1,386 @@
+package com.jzy.office.word;
+
+import com.jzy.office.exception.InvalidFileTypeException;
+import lombok.Getter;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * @ClassName Word2007TextExtractor
+ * @Author JinZhiyun
+ * @Description word 2007文档的流式文本读取器。
+ * 构造{@link Word2007}对象会把整个文档解析成XWPFDocument，只需要段落和表格文本（如建立搜索索引）时代价过高。
+ * 该类直接从.docx压缩包中用StAX顺序读取word/document.xml（以及可选的页眉、页脚），
+ * 通过{@link Word2007TextHandler}逐个回调段落和表格单元格，不构造任何文档对象，内存占用与文档大小无关。
+ * <p>
+ * 段落文本与{@link Word2007#readParagraph(int)}一致：w:t为文本，w:tab、w:ptab为\t，w:br、w:cr为\n，
+ * 脚注、尾注引用为[footnoteRef:id]、[endnoteRef:id]，不含域代码（w:instrText）、删除的文本（w:delText）以及文本框中的内容。
+ * 与XWPFParagraph#getText()的区别是：不在段落末尾追加脚注内容，也不输出复选框域的|X|、|_|。
+ * 同{@link Word2007}，只有正文中的段落作为段落回调，只有正文中的表格（不含嵌套表格）作为表格回调
+ * @Date 2021/2/24 9:30
+ * @Version 1.0
+ **/
+public class Word2007TextExtractor {
+    /**
+     * 正文部件名称
+     */
+    public static final String DOCUMENT_PART_NAME = "word/document.xml";
+
+    /**
+     * 页眉、页脚部件名称
+     */
+    private static final Pattern HEADER_FOOTER_PART_NAME = Pattern.compile("word/(header|footer)\\d*\\.xml");
+
+    /**
+     * wordprocessingml的命名空间
+     */
+    private static final String W_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    /**
+     * 这些元素下的所有内容都不属于段落文本：域代码、删除的文本、图片、文本框、兼容内容等
+     */
+    private static final Set<String> SKIPPED_ELEMENTS = new HashSet<>(Arrays.asList(
+            "instrText", "delInstrText", "delText", "drawing", "pict", "object", "txbxContent", "AlternateContent"));
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, false);
+    }
+
+    /**
+     * 是否同时读取页眉、页脚
+     */
+    @Getter
+    private boolean includeHeadersFooters;
+
+    /**
+     * 构造只读取正文的读取器
+     */
+    public Word2007TextExtractor() {
+        this(false);
+    }
+
+    /**
+     * 构造读取器
+     *
+     * @param includeHeadersFooters 是否同时读取页眉、页脚
+     */
+    public Word2007TextExtractor(boolean includeHeadersFooters) {
+        this.includeHeadersFooters = includeHeadersFooters;
+    }
+
+    /**
+     * 读取指定路径的.docx文件
+     *
+     * @param inputFile 输入文件路径
+     * @param handler   回调
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public void extract(String inputFile, Word2007TextHandler handler) throws IOException, InvalidFileTypeException {
+        extract(new File(inputFile), handler);
+    }
+
+    /**
+     * 读取.docx文件。先读正文，再按部件名称顺序读页眉、页脚
+     *
+     * @param file    输入文件对象
+     * @param handler 回调
+     * @throws IOException
+     * @throws InvalidFileTypeException
+     */
+    public void extract(File file, Word2007TextHandler handler) throws IOException, InvalidFileTypeException {
+        if (!WordVersionEnum.VERSION_2007.equals(WordVersionEnum.getVersion(file.getAbsolutePath()))) {
+            throw new InvalidFileTypeException("错误的文件类型！" + Word2007TextExtractor.class + "仅支持文件格式：" + WordVersionEnum.VERSION_2007.getSuffix());
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry documentEntry = zipFile.getEntry(DOCUMENT_PART_NAME);
+            if (documentEntry == null) {
+                throw new IOException("文件中不存在" + DOCUMENT_PART_NAME + "：" + file.getAbsolutePath());
+            }
+            try (InputStream in = zipFile.getInputStream(documentEntry)) {
+                extractPart(DOCUMENT_PART_NAME, in, handler);
+            }
+            if (includeHeadersFooters) {
+                List<String> partNames = new ArrayList<>();
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (HEADER_FOOTER_PART_NAME.matcher(name).matches()) {
+                        partNames.add(name);
+                    }
+                }
+                Collections.sort(partNames);
+                for (String partName : partNames) {
+                    try (InputStream in = zipFile.getInputStream(zipFile.getEntry(partName))) {
+                        extractPart(partName, in, handler);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取.docx文件的输入流。各部件按其在压缩包中的先后顺序回调。该方法不会关闭输入流
+     *
+     * @param inputStream 输入流对象
+     * @param handler     回调
+     * @throws IOException
+     */
+    public void extract(InputStream inputStream, Word2007TextHandler handler) throws IOException {
+        ZipInputStream zip = new ZipInputStream(inputStream);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (DOCUMENT_PART_NAME.equals(name)
+                    || (includeHeadersFooters && HEADER_FOOTER_PART_NAME.matcher(name).matches())) {
+                extractPart(name, zip, handler);
+            }
+        }
+    }
+
+    /**
+     * 流式读取一个部件的xml
+     *
+     * @param partName 部件名称
+     * @param in       部件xml的输入流
+     * @param handler  回调
+     * @throws IOException
+     */
+    private void extractPart(String partName, InputStream in, Word2007TextHandler handler) throws IOException {
+        handler.startPart(partName);
+        XMLStreamReader reader = null;
+        try {
+            //解析器读到文档末尾时可能会关闭输入流，而压缩包输入流还要继续读后面的部件
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new CloseShieldInputStream(in));
+            new PartReader(reader, handler).read();
+        } catch (XMLStreamException e) {
+            throw new IOException("解析" + partName + "失败", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+        handler.endPart(partName);
+    }
+
+    /**
+     * 一个部件的读取状态
+     */
+    private static class PartReader {
+        private XMLStreamReader reader;
+
+        private Word2007TextHandler handler;
+
+        /**
+         * 从根元素到当前元素的路径，只记录w命名空间下元素的本地名，其他命名空间的元素记为null
+         */
+        private List<String> path = new ArrayList<>();
+
+        /**
+         * 处于被跳过的元素中时，该元素在path中的深度，否则为-1
+         */
+        private int skipDepth = -1;
+
+        /**
+         * 当前正在读取文本的段落，不读取时为null
+         */
+        private StringBuilder paraText;
+
+        /**
+         * 当前段落在path中的深度
+         */
+        private int paraDepth = -1;
+
+        /**
+         * 是否在w:t中
+         */
+        private boolean inText;
+
+        private int paraPos = -1;
+
+        private int tablePos = -1;
+
+        private int rowPos = -1;
+
+        private int columnPos = -1;
+
+        /**
+         * 当前单元格每个段落的文本，不在单元格中时为null
+         */
+        private List<String> cellParas;
+
+        PartReader(XMLStreamReader reader, Word2007TextHandler handler) {
+            this.reader = reader;
+            this.handler = handler;
+        }
+
+        void read() throws XMLStreamException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (inText) {
+                            paraText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void startElement() {
+            String name = W_NAMESPACE.equals(reader.getNamespaceURI()) ? reader.getLocalName() : null;
+            if ("AlternateContent".equals(reader.getLocalName())) {
+                //mc:AlternateContent
+                name = reader.getLocalName();
+            }
+            String parent = path.isEmpty() ? null : path.get(path.size() - 1);
+            path.add(name);
+            int depth = path.size() - 1;
+            if (skipDepth >= 0 || name == null) {
+                return;
+            }
+            if (SKIPPED_ELEMENTS.contains(name)) {
+                skipDepth = depth;
+                return;
+            }
+            switch (name) {
+                case "p":
+                    if (paraText == null && (isRoot(depth - 1) || (cellParas != null && "tc".equals(parent) && isRoot(depth - 4)))) {
+                        //正文中的段落，或正文中表格的单元格中的段落
+                        paraText = new StringBuilder();
+                        paraDepth = depth;
+                    }
+                    break;
+                case "tbl":
+                    if (isRoot(depth - 1)) {
+                        tablePos++;
+                        rowPos = -1;
+                    }
+                    break;
+                case "tr":
+                    if (isRoot(depth - 2) && "tbl".equals(parent)) {
+                        rowPos++;
+                        columnPos = -1;
+                    }
+                    break;
+                case "tc":
+                    if (isRoot(depth - 3) && "tr".equals(parent)) {
+                        columnPos++;
+                        cellParas = new ArrayList<>();
+                    }
+                    break;
+                case "t":
+                    inText = paraText != null && "r".equals(parent);
+                    break;
+                case "tab":
+                case "ptab":
+                    appendInRun(parent, "\t");
+                    break;
+                case "br":
+                case "cr":
+                    appendInRun(parent, "\n");
+                    break;
+                case "footnoteReference":
+                    appendInRun(parent, "[footnoteRef:" + reader.getAttributeValue(W_NAMESPACE, "id") + "]");
+                    break;
+                case "endnoteReference":
+                    appendInRun(parent, "[endnoteRef:" + reader.getAttributeValue(W_NAMESPACE, "id") + "]");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void endElement() {
+            int depth = path.size() - 1;
+            String name = path.remove(depth);
+            if (skipDepth >= 0) {
+                if (skipDepth == depth) {
+                    skipDepth = -1;
+                }
+                return;
+            }
+            if (name == null) {
+                return;
+            }
+            switch (name) {
+                case "p":
+                    if (paraText != null && paraDepth == depth) {
+                        if (cellParas != null) {
+                            cellParas.add(paraText.toString());
+                        } else {
+                            handler.paragraph(++paraPos, paraText.toString());
+                        }
+                        paraText = null;
+                        paraDepth = -1;
+                    }
+                    break;
+                case "tc":
+                    if (cellParas != null && isRoot(depth - 3)) {
+                        handler.tableCell(tablePos, rowPos, columnPos, cellParas);
+                        cellParas = null;
+                    }
+                    break;
+                case "t":
+                    inText = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * 当前段落的run中的元素，追加对应的文本
+         *
+         * @param parent 父元素本地名
+         * @param text   文本
+         */
+        private void appendInRun(String parent, String text) {
+            if (paraText != null && "r".equals(parent)) {
+                paraText.append(text);
+            }
+        }
+
+        /**
+         * path中指定深度的元素是否为部件正文的根：document.xml中的w:body，页眉页脚的w:hdr、w:ftr
+         *
+         * @param depth 深度
+         * @return
+         */
+        private boolean isRoot(int depth) {
+            if (depth < 0 || depth >= path.size()) {
+                return false;
+            }
+            String name = path.get(depth);
+            return ("body".equals(name) && depth == 1) || (("hdr".equals(name) || "ftr".equals(name)) && depth == 0);
+        }
+    }
+}
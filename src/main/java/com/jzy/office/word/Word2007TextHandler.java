@@ -0,0 +1,50 @@
+package com.jzy.office.word;
+
+import java.util.List;
+
+/**
+ * @InterfaceName Word2007TextHandler
+ * @Author JinZhiyun
+ * @Description {@link Word2007TextExtractor}流式读取文本时的回调。
+ * 每个部件（正文word/document.xml、页眉、页脚）依次回调：startPart、若干paragraph和tableCell、endPart。
+ * 段落和表格单元格按它们在部件中出现的先后顺序回调
+ * @Date 2021/2/24 9:30
+ * @Version 1.0
+ **/
+public interface Word2007TextHandler {
+    /**
+     * 开始读取一个部件
+     *
+     * @param partName 部件在压缩包中的名称，如word/document.xml、word/header1.xml
+     */
+    default void startPart(String partName) {
+    }
+
+    /**
+     * 读到部件中的一个段落（不含表格中的段落）。
+     * 段落文本同{@link Word2007#readParagraph(int)}
+     *
+     * @param pos  段落在当前部件中的索引
+     * @param text 段落文本
+     */
+    void paragraph(int pos, String text);
+
+    /**
+     * 读到部件中一个表格的一个单元格。
+     * 单元格内容同{@link Word2007#readTable(int, int, int)}，即单元格的每个段落文本的list
+     *
+     * @param tablePos   表格在当前部件中的索引
+     * @param rowPos     表格行索引
+     * @param columnPos  表格列索引
+     * @param paragraphs 单元格的每个段落的文本
+     */
+    void tableCell(int tablePos, int rowPos, int columnPos, List<String> paragraphs);
+
+    /**
+     * 读完一个部件
+     *
+     * @param partName 部件在压缩包中的名称
+     */
+    default void endPart(String partName) {
+    }
+}
@@ -6,7 +6,16 @@ import java.lang.management.ManagementFactory;
 import java.text.ParseException;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author JinZhiyun
@@ -27,9 +36,80 @@ public class MyTimeUtils {
     public static final long VALID_TIME_5_MIN = 300000;  //5分钟,500s
     public static final long VALID_TIME_10_MIN = 600000;  //10分钟,600s
 
+    /**
+     * 日期格式→DateTimeFormatter。DateTimeFormatter不可变、线程安全，每种格式只创建一次
+     */
+    private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    /**
+     * 格式中没有日期时使用的日期，与SimpleDateFormat相同
+     */
+    private static final LocalDate EPOCH_DAY = LocalDate.of(1970, 1, 1);
+
     private MyTimeUtils() {
     }
 
+    /**
+     * 获取日期格式对应的DateTimeFormatter，同一格式在所有线程间共用一个对象。
+     * 解析时严格校验日期，2021-02-30这样不存在的日期不会被调整为月末而是解析失败。
+     * 格式字母按DateTimeFormatter解释，与{@link #dateToString(Date, String)}、{@link #stringToDate(String, String)}
+     * 使用的SimpleDateFormat不完全相同（如S、u、F、k、K）
+     *
+     * @param pattern 日期格式，如{@link #FORMAT_YMDHMS}
+     * @return 日期格式对象
+     * @throws IllegalArgumentException 日期格式不合法
+     */
+    public static DateTimeFormatter getFormatter(String pattern) {
+        //先get，已有的格式不进入computeIfAbsent的加锁路径
+        DateTimeFormatter formatter = FORMATTERS.get(pattern);
+        if (formatter == null) {
+            formatter = FORMATTERS.computeIfAbsent(pattern, MyTimeUtils::newFormatter);
+        }
+        return formatter;
+    }
+
+    private static DateTimeFormatter newFormatter(String pattern) {
+        //STRICT下yyyy是公元纪年，需要纪元才能确定年份，格式中没有纪元时默认为公元
+        return new DateTimeFormatterBuilder().appendPattern(pattern).parseDefaulting(ChronoField.ERA, 1)
+                .toFormatter().withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    /**
+     * 按日期格式解析整个字符串，如单元格的值。不符合格式时直接返回null，不会创建再捕获异常
+     *
+     * @param text      日期字符串，不需要先转为String
+     * @param formatter 日期格式
+     * @return 不符合日期格式或日期不存在（如13月）时返回null
+     */
+    public static Date parseDate(CharSequence text, DateTimeFormatter formatter) {
+        ParsePosition position = new ParsePosition(0);
+        //parseUnresolved失败时不抛出异常，只检查字符串的格式；只有格式正确的才完整解析
+        if (text == null || formatter.parseUnresolved(text, position) == null || position.getIndex() != text.length()) {
+            return null;
+        }
+        try {
+            return toDate(formatter.parse(text));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 将解析结果转为Date：有时区时按时区转换，否则按系统默认时区；没有日期的按1970-01-01，没有时间的按0点
+     *
+     * @param temporal 解析结果
+     * @return
+     */
+    private static Date toDate(TemporalAccessor temporal) {
+        if (temporal.isSupported(ChronoField.INSTANT_SECONDS)) {
+            return Date.from(Instant.from(temporal));
+        }
+        LocalDate date = temporal.query(TemporalQueries.localDate());
+        LocalTime time = temporal.query(TemporalQueries.localTime());
+        LocalDateTime dateTime = LocalDateTime.of(date == null ? EPOCH_DAY : date, time == null ? LocalTime.MIDNIGHT : time);
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
     /**
      * @return long
      * @author JinZhiyun
@@ -490,4 +570,63 @@ public class MyTimeUtils {
     public static void main(String[] args) {
         System.out.println(dateToStringYMDHMS(getPastDay(new Date(), 7)));
     }
+
+    /**
+     * 按多种日期格式解析同一列的值。一列的值通常都是同一种格式，解析时先尝试上次成功的格式，
+     * 失败时再依次尝试其他格式，整列只需要检测一次格式。可以在多个线程间共用
+     */
+    public static class MultiPatternDateParser {
+        private final String[] patterns;
+
+        private final DateTimeFormatter[] formatters;
+
+        /**
+         * 上次解析成功的格式
+         */
+        private volatile int lastIndex;
+
+        /**
+         * @param patterns 日期格式，先尝试排在前面的格式
+         */
+        public MultiPatternDateParser(String... patterns) {
+            if (patterns.length == 0) {
+                throw new IllegalArgumentException("至少需要一种日期格式");
+            }
+            this.patterns = patterns.clone();
+            this.formatters = new DateTimeFormatter[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                formatters[i] = getFormatter(patterns[i]);
+            }
+        }
+
+        /**
+         * 解析整个字符串
+         *
+         * @param text 日期字符串
+         * @return 不符合任何一种格式时返回null
+         */
+        public Date parse(CharSequence text) {
+            int last = lastIndex;
+            Date date = parseDate(text, formatters[last]);
+            if (date != null) {
+                return date;
+            }
+            for (int i = 0; i < formatters.length; i++) {
+                if (i != last && (date = parseDate(text, formatters[i])) != null) {
+                    lastIndex = i;
+                    return date;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 上次解析成功的格式，即检测到的这一列的格式
+         *
+         * @return 还没有解析成功过时为第一种格式
+         */
+        public String getLastPattern() {
+            return patterns[lastIndex];
+        }
+    }
 }
@@ -0,0 +1,383 @@
+package com.jzy.util;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * @author JinZhiyun
+ * @version 1.0
+ * @ClassName MyValidateUtils
+ * @description 身份证号、手机号、邮箱、ip地址的校验，用于批量校验整列的值。
+ * <p>
+ * 与{@link MyStringUtils}中对应的方法规则相同，但直接逐个字符检查CharSequence：省份代码、手机号段、加权因子等都是预先算好的表，
+ * 出生日期手写检查，不使用正则、SimpleDateFormat和substring，校验时不创建任何对象，可以在多个线程中同时使用。
+ * 与原实现不同的是，手机号和身份证号的每一位都必须是数字（原手机号正则的字符类中误含逗号等字符）；
+ * 15位身份证号的出生年份固定为19xx年
+ * @date 2021/3/2 14:30
+ **/
+public class MyValidateUtils {
+    private MyValidateUtils() {
+    }
+
+    /**
+     * 省、直辖市代码，下标为两位代码，参见{@link MyStringUtils.IdCardUtil}
+     */
+    private static final boolean[] PROVINCE_CODES = new boolean[100];
+
+    /**
+     * 18位身份证号前17位的加权因子
+     */
+    private static final int[] POWER = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+
+    /**
+     * 加权和除以11的余数→校验位
+     */
+    private static final char[] CHECK_CODES = {'1', '0', 'X', '9', '8', '7', '6', '5', '4', '3', '2'};
+
+    /**
+     * 手机号前三位号段，下标为三位数字，参见{@link MyStringUtils#isPhone(String)}
+     */
+    private static final boolean[] PHONE_PREFIXES = new boolean[1000];
+
+    private static final int[] DAYS_OF_MONTH = {0, 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    static {
+        int[] provinces = {11, 12, 13, 14, 15, 21, 22, 23, 31, 32, 33, 34, 35, 36, 37, 41, 42, 43, 44, 45, 46, 50, 51, 52,
+                53, 54, 61, 62, 63, 64, 65, 71, 81, 82, 91};
+        for (int province : provinces) {
+            PROVINCE_CODES[province] = true;
+        }
+        int[] phonePrefixes = {145, 147, 149, 150, 151, 152, 153, 155, 156, 157, 158, 159, 166, 170, 171, 173, 175, 176, 177,
+                178, 198, 199};
+        for (int prefix : phonePrefixes) {
+            PHONE_PREFIXES[prefix] = true;
+        }
+        for (int i = 0; i < 10; i++) {
+            PHONE_PREFIXES[130 + i] = true;
+            PHONE_PREFIXES[180 + i] = true;
+        }
+    }
+
+    /**
+     * 是否是合法的15位或18位身份证号
+     *
+     * @param idCard 身份证号
+     * @return 是否合法
+     */
+    public static boolean isIdCard(CharSequence idCard) {
+        if (idCard == null) {
+            return false;
+        }
+        if (idCard.length() == 18) {
+            return isIdCard18(idCard);
+        }
+        return idCard.length() == 15 && isIdCard15(idCard);
+    }
+
+    /**
+     * 是否是合法的18位身份证号：前17位为数字，省份代码、出生日期合法，第18位校验位正确（x不区分大小写）
+     *
+     * @param idCard 身份证号
+     * @return 是否合法
+     */
+    public static boolean isIdCard18(CharSequence idCard) {
+        if (idCard == null || idCard.length() != 18) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 17; i++) {
+            int digit = idCard.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            sum += digit * POWER[i];
+        }
+        if (!PROVINCE_CODES[digits(idCard, 0, 2)]) {
+            return false;
+        }
+        if (!isDate(digits(idCard, 6, 4), digits(idCard, 10, 2), digits(idCard, 12, 2))) {
+            return false;
+        }
+        char checkCode = CHECK_CODES[sum % 11];
+        char last = idCard.charAt(17);
+        return last == checkCode || (checkCode == 'X' && last == 'x');
+    }
+
+    /**
+     * 是否是合法的15位身份证号：15位都为数字，省份代码、出生日期（19yyMMdd）合法
+     *
+     * @param idCard 身份证号
+     * @return 是否合法
+     */
+    public static boolean isIdCard15(CharSequence idCard) {
+        if (idCard == null || idCard.length() != 15 || !isDigits(idCard, 0, 15)) {
+            return false;
+        }
+        return PROVINCE_CODES[digits(idCard, 0, 2)]
+                && isDate(1900 + digits(idCard, 6, 2), digits(idCard, 8, 2), digits(idCard, 10, 2));
+    }
+
+    /**
+     * 是否是合法的手机号：11位数字，前三位为{@link MyStringUtils#isPhone(String)}中的号段
+     *
+     * @param phone 手机号
+     * @return 是否合法
+     */
+    public static boolean isPhone(CharSequence phone) {
+        return phone != null && phone.length() == 11 && isDigits(phone, 0, 11) && PHONE_PREFIXES[digits(phone, 0, 3)];
+    }
+
+    /**
+     * 是否是合法的邮箱，规则与{@link MyStringUtils#isEmail(String)}相同：
+     * '@'前至少一个字符，由字母、数字、下划线、'-'、'.'、'+'组成且最后一个字符不是'+'；
+     * '@'后至少两段，每段由字母、数字、下划线组成，以'.'分隔，最后一段至少两个字符
+     *
+     * @param email 邮箱
+     * @return 是否合法
+     */
+    public static boolean isEmail(CharSequence email) {
+        if (email == null) {
+            return false;
+        }
+        int length = email.length();
+        int i = 0;
+        while (i < length && (isWordChar(email.charAt(i)) || email.charAt(i) == '-' || email.charAt(i) == '.'
+                || email.charAt(i) == '+')) {
+            i++;
+        }
+        if (i == 0 || i == length || email.charAt(i) != '@' || email.charAt(i - 1) == '+') {
+            return false;
+        }
+        int labels = 0;
+        int labelLength = 0;
+        for (i++; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return false;
+                }
+                labels++;
+                labelLength = 0;
+            } else if (isWordChar(c)) {
+                labelLength++;
+            } else {
+                return false;
+            }
+        }
+        return labels > 0 && labelLength >= 2;
+    }
+
+    /**
+     * 是否是合法的ip地址，ipv4或ipv6
+     *
+     * @param ip 输入地址
+     * @return 是否合法
+     */
+    public static boolean isIpAddress(CharSequence ip) {
+        return isIpv4Address(ip) || isIpv6Address(ip);
+    }
+
+    /**
+     * 是否是合法的ipv4地址：四段0~255的十进制数，以'.'分隔，除0外不以0开头
+     *
+     * @param ip 输入地址
+     * @return 是否合法
+     */
+    public static boolean isIpv4Address(CharSequence ip) {
+        return ip != null && ipv4End(ip, 0) == ip.length();
+    }
+
+    /**
+     * 是否是合法的ipv6地址，规则与{@link MyStringUtils#isIpv6Address(String)}相同：
+     * 不压缩时为8段1~4位的十六进制数；最多一处以"::"压缩，此时至少写出一段、最多写出7段；
+     * 最后可以是内嵌的ipv4地址，算作两段
+     *
+     * @param ip 输入地址
+     * @return 是否合法
+     */
+    public static boolean isIpv6Address(CharSequence ip) {
+        if (ip == null) {
+            return false;
+        }
+        int length = ip.length();
+        int groups = 0;
+        boolean compressed = false;
+        int i = 0;
+        if (length >= 2 && ip.charAt(0) == ':' && ip.charAt(1) == ':') {
+            compressed = true;
+            i = 2;
+        } else if (length > 0 && ip.charAt(0) == ':') {
+            return false;
+        }
+        while (i < length) {
+            int start = i;
+            while (i < length && i - start < 5 && isHexDigit(ip.charAt(i))) {
+                i++;
+            }
+            if (i < length && ip.charAt(i) == '.') {
+                //内嵌的ipv4地址，必须是最后一部分
+                if (ipv4End(ip, start) != length) {
+                    return false;
+                }
+                groups += 2;
+                break;
+            }
+            int digits = i - start;
+            if (digits == 0 || digits > 4) {
+                return false;
+            }
+            groups++;
+            if (i == length) {
+                break;
+            }
+            if (ip.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < length && ip.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            } else if (i == length) {
+                //以单个':'结尾
+                return false;
+            }
+        }
+        return compressed ? groups >= 1 && groups <= 7 : groups == 8;
+    }
+
+    /**
+     * 找出列中不合法的身份证号，参见{@link #findInvalid(List, Predicate)}
+     *
+     * @param values 列的值
+     * @return 不合法的值的下标
+     */
+    public static BitSet findInvalidIdCards(List<? extends CharSequence> values) {
+        return findInvalid(values, MyValidateUtils::isIdCard);
+    }
+
+    /**
+     * 找出列中不合法的手机号，参见{@link #findInvalid(List, Predicate)}
+     *
+     * @param values 列的值
+     * @return 不合法的值的下标
+     */
+    public static BitSet findInvalidPhones(List<? extends CharSequence> values) {
+        return findInvalid(values, MyValidateUtils::isPhone);
+    }
+
+    /**
+     * 找出列中不合法的邮箱，参见{@link #findInvalid(List, Predicate)}
+     *
+     * @param values 列的值
+     * @return 不合法的值的下标
+     */
+    public static BitSet findInvalidEmails(List<? extends CharSequence> values) {
+        return findInvalid(values, MyValidateUtils::isEmail);
+    }
+
+    /**
+     * 找出列中不合法的ip地址，参见{@link #findInvalid(List, Predicate)}
+     *
+     * @param values 列的值
+     * @return 不合法的值的下标
+     */
+    public static BitSet findInvalidIpAddresses(List<? extends CharSequence> values) {
+        return findInvalid(values, MyValidateUtils::isIpAddress);
+    }
+
+    /**
+     * 批量校验一列的值，为null或为空的值跳过
+     *
+     * @param values    列的值，如{@link com.jzy.office.excel.AbstractExcel#readColumn(int, int)}的结果
+     * @param validator 校验方法
+     * @return 不合法的值的下标
+     */
+    public static BitSet findInvalid(List<? extends CharSequence> values, Predicate<CharSequence> validator) {
+        BitSet invalid = new BitSet(values.size());
+        int i = 0;
+        for (CharSequence value : values) {
+            if (value != null && value.length() > 0 && !validator.test(value)) {
+                invalid.set(i);
+            }
+            i++;
+        }
+        return invalid;
+    }
+
+    /**
+     * 从start开始解析一个ipv4地址
+     *
+     * @param ip    输入地址
+     * @param start 开始位置
+     * @return 地址结束的位置，不合法时返回-1
+     */
+    private static int ipv4End(CharSequence ip, int start) {
+        int length = ip.length();
+        int i = start;
+        for (int part = 0; part < 4; part++) {
+            if (part > 0) {
+                if (i >= length || ip.charAt(i) != '.') {
+                    return -1;
+                }
+                i++;
+            }
+            int partStart = i;
+            int value = 0;
+            while (i < length && i - partStart < 3 && isDigit(ip.charAt(i))) {
+                value = value * 10 + ip.charAt(i) - '0';
+                i++;
+            }
+            int digits = i - partStart;
+            if (digits == 0 || value > 255 || (digits > 1 && ip.charAt(partStart) == '0')) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 是否为合法的公历日期
+     */
+    private static boolean isDate(int year, int month, int day) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > DAYS_OF_MONTH[month]) {
+            return false;
+        }
+        return month != 2 || day < 29 || (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0));
+    }
+
+    /**
+     * 已确认为数字的count个字符的十进制值
+     */
+    private static int digits(CharSequence value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            result = result * 10 + value.charAt(i) - '0';
+        }
+        return result;
+    }
+
+    private static boolean isDigits(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}